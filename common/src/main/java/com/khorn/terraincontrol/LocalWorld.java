@@ -10,6 +10,7 @@ import com.khorn.terraincontrol.exception.BiomeNotFoundException;
 import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 import com.khorn.terraincontrol.util.minecraftTypes.TreeType;
 
@@ -168,6 +169,14 @@ public interface LocalWorld
      */
     public void endPopulation();
 
+    /**
+     * Gets the number of blocks placed using
+     * {@link #setBlock(int, int, int, LocalMaterialData)} since the
+     * population of the current chunk started.
+     * @return The number of blocks.
+     */
+    public int getPopulationBlockCount();
+
     // Blocks
     public LocalMaterialData getMaterial(int x, int y, int z);
 
@@ -175,6 +184,23 @@ public interface LocalWorld
 
     public void setBlock(int x, int y, int z, LocalMaterialData material);
 
+    /**
+     * Replaces the block at the given position, but only if the current block
+     * is one of the source blocks. Meant for ores and other blocks that are
+     * placed inside stone. When the block is in one of the chunks being
+     * populated, and the new block lets through and emits the same amount of
+     * light as the old block, it is written directly to the block storage of
+     * the chunk, skipping lighting and block updates. Otherwise, this method
+     * works like {@link #setBlock(int, int, int, LocalMaterialData)}.
+     * @param x            X position of the block.
+     * @param y            Y position of the block.
+     * @param z            Z position of the block.
+     * @param material     The new block.
+     * @param sourceBlocks The blocks that may be replaced.
+     * @return True if the block was replaced, false otherwise.
+     */
+    public boolean replaceSourceBlock(int x, int y, int z, LocalMaterialData material, MaterialSet sourceBlocks);
+
     public void attachMetadata(int x, int y, int z, NamedBinaryTag tag);
 
     @SuppressWarnings("UnusedDeclaration")
@@ -7,6 +7,7 @@ import com.khorn.terraincontrol.configuration.io.SimpleSettingsMap;
 import com.khorn.terraincontrol.configuration.standard.BiomeStandardValues;
 import com.khorn.terraincontrol.configuration.standard.StandardBiomeTemplate;
 import com.khorn.terraincontrol.logging.LogMarker;
+import com.khorn.terraincontrol.util.helpers.ParallelHelper;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -14,6 +15,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * This class searches for the appropriate file for each biome.
@@ -225,15 +227,23 @@ public final class BiomeConfigFinder
         }
 
         // Search all directories
+        List<Callable<BiomeConfigStub>> biomeFileReaders = new ArrayList<Callable<BiomeConfigStub>>();
         for (File directory : directories)
         {
             // Account for the possibility that folder creation failed
             if (directory.exists())
             {
-                loadBiomesFromDirectory(biomeConfigsStore, directory, remainingBiomes);
+                loadBiomesFromDirectory(biomeFileReaders, directory, remainingBiomes);
             }
         }
 
+        // Reading and parsing the files is independent for each biome, so
+        // that can be done in parallel
+        for (BiomeConfigStub biomeConfigStub : ParallelHelper.invokeAll(biomeFileReaders))
+        {
+            biomeConfigsStore.put(biomeConfigStub.getBiomeName(), biomeConfigStub);
+        }
+
         // Create all biomes that weren't loaded
         File preferredDirectory = directories.iterator().next();
         for (BiomeLoadInstruction localBiome : remainingBiomes.values())
@@ -249,26 +259,58 @@ public final class BiomeConfigFinder
     }
 
     /**
-     * Loads the biomes from the given directory.
+     * Restores the biomes from a snapshot of the raw settings, instead of
+     * searching and reading the biome files.
+     *
+     * @param snapshot The snapshot.
+     * @param biomesToLoad The biomes to load.
+     *
+     * @return A map of biome name --> location on disk, or null if the
+     *         snapshot doesn't contain exactly the biomes to load.
+     */
+    public Map<String, BiomeConfigStub> restoreBiomes(ConfigSnapshot snapshot, Collection<BiomeLoadInstruction> biomesToLoad)
+    {
+        if (snapshot.getBiomeCount() != biomesToLoad.size())
+        {
+            return null;
+        }
+
+        Map<String, BiomeConfigStub> biomeConfigsStore = new HashMap<String, BiomeConfigStub>();
+        for (BiomeLoadInstruction biome : biomesToLoad)
+        {
+            ConfigSnapshot.BiomeSnapshot biomeSnapshot = snapshot.getBiome(biome.getBiomeName());
+            if (biomeSnapshot == null)
+            {
+                return null;
+            }
+            SettingsMap settings = biomeSnapshot.createSettingsMap(biome.getBiomeName());
+            biomeConfigsStore.put(biome.getBiomeName(), new BiomeConfigStub(settings, biomeSnapshot.file, biome));
+        }
+        return biomeConfigsStore;
+    }
+
+    /**
+     * Finds the biomes in the given directory. The files are not read yet,
+     * instead a task that reads the file is added for each biome.
      * 
-     * @param biomeConfigsStore Map to store all the found biome configs in.
+     * @param biomeFileReaders  List to add the file reading tasks to.
      * @param directory         The directory to load from.
      * @param remainingBiomes   The biomes that should still be loaded. When a
      *                          biome is found, it is removed from this map.
      */
-    private void loadBiomesFromDirectory(Map<String, BiomeConfigStub> biomeConfigsStore, File directory, Map<String, BiomeLoadInstruction> remainingBiomes)
+    private void loadBiomesFromDirectory(List<Callable<BiomeConfigStub>> biomeFileReaders, File directory, Map<String, BiomeLoadInstruction> remainingBiomes)
     {
-        for (File file : directory.listFiles())
+        for (final File file : directory.listFiles())
         {
             // Search recursively
             if (file.isDirectory())
             {
-                loadBiomesFromDirectory(biomeConfigsStore, file, remainingBiomes);
+                loadBiomesFromDirectory(biomeFileReaders, file, remainingBiomes);
                 continue;
             }
 
             // Extract name from filename
-            String biomeName = toBiomeName(file);
+            final String biomeName = toBiomeName(file);
             if (biomeName == null)
             {
                 // Not a valid biome file
@@ -276,7 +318,7 @@ public final class BiomeConfigFinder
             }
 
             // Get the correct LocalBiome
-            BiomeLoadInstruction biome = remainingBiomes.get(biomeName);
+            final BiomeLoadInstruction biome = remainingBiomes.get(biomeName);
             if (biome == null)
             {
                 // Doesn't need to be loaded. Maybe it's in both the global
@@ -286,10 +328,16 @@ public final class BiomeConfigFinder
             }
 
             // Load biome and remove it from the todo list
-            File renamedFile = renameBiomeFile(file, biome);
-            SettingsMap settings = FileSettingsReader.read(biomeName, renamedFile);
-            BiomeConfigStub biomeConfigStub = new BiomeConfigStub(settings, file, biome);
-            biomeConfigsStore.put(biomeName, biomeConfigStub);
+            final File renamedFile = renameBiomeFile(file, biome);
+            biomeFileReaders.add(new Callable<BiomeConfigStub>()
+            {
+                @Override
+                public BiomeConfigStub call()
+                {
+                    SettingsMap settings = FileSettingsReader.read(biomeName, renamedFile);
+                    return new BiomeConfigStub(settings, file, biome);
+                }
+            });
             remainingBiomes.remove(biome.getBiomeName());
         }
     }
@@ -0,0 +1,397 @@
+package com.khorn.terraincontrol.configuration;
+
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.configuration.io.RawSettingValue;
+import com.khorn.terraincontrol.configuration.io.RawSettingValue.ValueType;
+import com.khorn.terraincontrol.configuration.io.SettingsMap;
+import com.khorn.terraincontrol.configuration.io.SimpleSettingsMap;
+import com.khorn.terraincontrol.configuration.standard.WorldStandardValues;
+import com.khorn.terraincontrol.logging.LogMarker;
+
+import java.io.*;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Binary snapshot of the raw settings of WorldConfig.ini and all biome
+ * files of a world, as they were read from disk.
+ *
+ * <p>Parsing hundreds of biome files is a large part of the startup time of
+ * a world. When none of the config files (and not the plugin itself) have
+ * changed since the previous start, the raw settings are read back from this
+ * snapshot in one sequential read instead. Inheritance and reading the
+ * actual settings from the raw settings still happens like normal.
+ *
+ * <p>The snapshot is keyed on the name, size and modification date of
+ * every config file, so any change to the files makes the snapshot invalid.
+ * When the snapshot is invalid or cannot be read, the files are read like
+ * normal.
+ */
+public final class ConfigSnapshot
+{
+    /**
+     * Increase this when the format of the file changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The raw settings of a single biome file.
+     */
+    static final class BiomeSnapshot
+    {
+        final File file;
+        final boolean isNewConfig;
+        final List<RawSettingValue> settings;
+
+        BiomeSnapshot(File file, boolean isNewConfig, List<RawSettingValue> settings)
+        {
+            this.file = file;
+            this.isNewConfig = isNewConfig;
+            this.settings = settings;
+        }
+
+        /**
+         * Creates a new settings map with the settings in this snapshot.
+         * @param biomeName Name of the biome.
+         * @return The settings map.
+         */
+        SettingsMap createSettingsMap(String biomeName)
+        {
+            return toSettingsMap(biomeName, isNewConfig, settings);
+        }
+    }
+
+    /**
+     * Computes the key of the current state of the config files. The key
+     * changes when any of the files is added, removed or modified, or when
+     * the plugin is updated.
+     * @param settingsDir The settings directory of the world.
+     * @param biomeDirs   All directories biomes are loaded from.
+     * @return The key.
+     */
+    public static String computeKey(File settingsDir, List<File> biomeDirs)
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        StringBuilder state = new StringBuilder();
+        state.append(FORMAT_VERSION).append('\n');
+        appendPluginState(state);
+        appendFileState(state, new File(settingsDir, WorldStandardValues.WORLD_CONFIG_FILE_NAME));
+        for (File biomeDir : biomeDirs)
+        {
+            state.append(biomeDir.getAbsolutePath()).append('\n');
+            appendDirectoryState(state, biomeDir);
+        }
+
+        byte[] hash;
+        try
+        {
+            hash = digest.digest(state.toString().getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        StringBuilder key = new StringBuilder(hash.length * 2);
+        for (byte b : hash)
+        {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16));
+            key.append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static void appendPluginState(StringBuilder state)
+    {
+        state.append(TerrainControl.class.getPackage().getImplementationVersion()).append('\n');
+        try
+        {
+            CodeSource codeSource = TerrainControl.class.getProtectionDomain().getCodeSource();
+            URL location = codeSource == null ? null : codeSource.getLocation();
+            if (location != null && "file".equals(location.getProtocol()))
+            {
+                appendFileState(state, new File(location.toURI()));
+            }
+        } catch (Exception e)
+        {
+            // Unknown location, the version will have to do
+        }
+    }
+
+    private static void appendDirectoryState(StringBuilder state, File directory)
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files)
+        {
+            if (file.isDirectory())
+            {
+                appendDirectoryState(state, file);
+            } else
+            {
+                appendFileState(state, file);
+            }
+        }
+    }
+
+    private static void appendFileState(StringBuilder state, File file)
+    {
+        state.append(file.getAbsolutePath());
+        state.append(':').append(file.length());
+        state.append(':').append(file.lastModified());
+        state.append('\n');
+    }
+
+    /**
+     * Reads a snapshot.
+     * @param file        The file to read from.
+     * @param expectedKey The key of the current state of the files, see
+     * {@link #computeKey(File, List)}.
+     * @return The snapshot, or null if the file doesn't exist, cannot be
+     * read or was made for another state of the config files.
+     */
+    public static ConfigSnapshot read(File file, String expectedKey)
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        DataInputStream stream = null;
+        try
+        {
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (stream.readInt() != FORMAT_VERSION || !stream.readUTF().equals(expectedKey))
+            {
+                // Outdated
+                return null;
+            }
+
+            ConfigSnapshot snapshot = new ConfigSnapshot(expectedKey);
+            snapshot.worldConfigIsNew = stream.readBoolean();
+            snapshot.worldConfigSettings = readSettings(stream);
+            int biomeCount = stream.readInt();
+            for (int i = 0; i < biomeCount; i++)
+            {
+                String biomeName = readString(stream);
+                File biomeFile = new File(readString(stream));
+                boolean isNewConfig = stream.readBoolean();
+                List<RawSettingValue> settings = readSettings(stream);
+                snapshot.biomes.put(biomeName, new BiomeSnapshot(biomeFile, isNewConfig, settings));
+            }
+            return snapshot;
+        } catch (Exception e)
+        {
+            TerrainControl.log(LogMarker.WARN, "Failed to read config snapshot {}, reading config files instead", file);
+            TerrainControl.printStackTrace(LogMarker.TRACE, e);
+            return null;
+        } finally
+        {
+            closeQuietly(stream);
+        }
+    }
+
+    private static List<RawSettingValue> readSettings(DataInputStream stream) throws IOException
+    {
+        ValueType[] valueTypes = ValueType.values();
+        int settingCount = stream.readInt();
+        List<RawSettingValue> settings = new ArrayList<RawSettingValue>(settingCount);
+        for (int i = 0; i < settingCount; i++)
+        {
+            ValueType valueType = valueTypes[stream.readByte()];
+            int lineNumber = stream.readInt();
+            RawSettingValue setting = RawSettingValue.create(valueType, readString(stream));
+            if (lineNumber > 0)
+            {
+                setting = setting.withLineNumber(lineNumber);
+            }
+            settings.add(setting);
+        }
+        return settings;
+    }
+
+    private static String readString(DataInputStream stream) throws IOException
+    {
+        // Not using readUTF, as setting values may be longer than 65535 bytes
+        byte[] bytes = new byte[stream.readInt()];
+        stream.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static SettingsMap toSettingsMap(String name, boolean isNewConfig, List<RawSettingValue> settings)
+    {
+        SimpleSettingsMap settingsMap = new SimpleSettingsMap(name, isNewConfig);
+        for (RawSettingValue setting : settings)
+        {
+            settingsMap.addRawSetting(setting);
+        }
+        return settingsMap;
+    }
+
+    private static void closeQuietly(Closeable closeable)
+    {
+        if (closeable == null)
+        {
+            return;
+        }
+        try
+        {
+            closeable.close();
+        } catch (IOException e)
+        {
+            // Ignore
+        }
+    }
+
+    private final String key;
+    private boolean worldConfigIsNew;
+    private List<RawSettingValue> worldConfigSettings = Collections.emptyList();
+    private final Map<String, BiomeSnapshot> biomes = new LinkedHashMap<String, BiomeSnapshot>();
+
+    /**
+     * Creates a new, empty snapshot.
+     * @param key The key of the state of the config files the snapshot is
+     * made for, see {@link #computeKey(File, List)}.
+     */
+    public ConfigSnapshot(String key)
+    {
+        this.key = key;
+    }
+
+    /**
+     * Gets the key of the state of the config files this snapshot was made
+     * for.
+     * @return The key.
+     */
+    public String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Stores the raw settings of the WorldConfig. Must be called before the
+     * settings are modified by reading them.
+     * @param settings The settings.
+     */
+    public void captureWorldConfig(SettingsMap settings)
+    {
+        this.worldConfigIsNew = settings.isNewConfig();
+        this.worldConfigSettings = new ArrayList<RawSettingValue>(settings.getRawSettings());
+    }
+
+    /**
+     * Stores the raw settings of a biome. Must be called before the
+     * settings are modified by reading them.
+     * @param biomeName Name of the biome.
+     * @param file      File the biome is stored in.
+     * @param settings  The settings.
+     */
+    public void captureBiome(String biomeName, File file, SettingsMap settings)
+    {
+        List<RawSettingValue> rawSettings = new ArrayList<RawSettingValue>(settings.getRawSettings());
+        this.biomes.put(biomeName, new BiomeSnapshot(file, settings.isNewConfig(), rawSettings));
+    }
+
+    /**
+     * Creates a new settings map holding the raw settings of the WorldConfig.
+     * @param worldName Name of the world.
+     * @return The settings map.
+     */
+    public SettingsMap createWorldConfigSettings(String worldName)
+    {
+        return toSettingsMap(worldName, worldConfigIsNew, worldConfigSettings);
+    }
+
+    /**
+     * Gets the raw settings of a biome.
+     * @param biomeName Name of the biome.
+     * @return The raw settings, or null if the biome is not in this snapshot.
+     */
+    BiomeSnapshot getBiome(String biomeName)
+    {
+        return biomes.get(biomeName);
+    }
+
+    /**
+     * Gets the number of biomes in this snapshot.
+     * @return The number of biomes.
+     */
+    int getBiomeCount()
+    {
+        return biomes.size();
+    }
+
+    /**
+     * Writes this snapshot to the given file. The snapshot is first written
+     * to a temporary file, so that a crash while writing doesn't leave a
+     * half-written snapshot behind. Failures are logged.
+     * @param file The file.
+     */
+    public void write(File file)
+    {
+        File tempFile = new File(file.getAbsolutePath() + ".tmp");
+        DataOutputStream stream = null;
+        try
+        {
+            stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            stream.writeInt(FORMAT_VERSION);
+            stream.writeUTF(key);
+            stream.writeBoolean(worldConfigIsNew);
+            writeSettings(stream, worldConfigSettings);
+            stream.writeInt(biomes.size());
+            for (Map.Entry<String, BiomeSnapshot> entry : biomes.entrySet())
+            {
+                BiomeSnapshot biome = entry.getValue();
+                writeString(stream, entry.getKey());
+                writeString(stream, biome.file.getAbsolutePath());
+                stream.writeBoolean(biome.isNewConfig);
+                writeSettings(stream, biome.settings);
+            }
+            stream.close();
+            stream = null;
+
+            if (file.exists() && !file.delete() || !tempFile.renameTo(file))
+            {
+                throw new IOException("Failed to move " + tempFile + " to " + file);
+            }
+        } catch (IOException e)
+        {
+            TerrainControl.log(LogMarker.WARN, "Failed to write config snapshot {}", file);
+            TerrainControl.printStackTrace(LogMarker.TRACE, e);
+            closeQuietly(stream);
+            tempFile.delete();
+        }
+    }
+
+    private static void writeSettings(DataOutputStream stream, List<RawSettingValue> settings) throws IOException
+    {
+        stream.writeInt(settings.size());
+        for (RawSettingValue setting : settings)
+        {
+            stream.writeByte(setting.getType().ordinal());
+            stream.writeInt(setting.getLineNumber());
+            writeString(stream, setting.getRawValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream stream, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes("UTF-8");
+        stream.writeInt(bytes.length);
+        stream.write(bytes);
+    }
+}
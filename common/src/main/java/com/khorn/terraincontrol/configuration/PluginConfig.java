@@ -79,6 +79,8 @@ public final class PluginConfig extends ConfigFile
         this.biomeConfigExtension = reader.getSetting(BiomeStandardValues.BIOME_CONFIG_EXTENSION);
         this.SpawnLog = reader.getSetting(PluginStandardValues.SPAWN_LOG);
         this.PregeneratorMaxChunksPerTick = reader.getSetting(PluginStandardValues.PREGENERATOR_MAX_CHUNKS_PER_TICK);
+        this.SlowChunkThreshold = reader.getSetting(PluginStandardValues.SLOW_CHUNK_THRESHOLD);
+        this.DimensionIdleReleaseMinutes = reader.getSetting(PluginStandardValues.DIMENSION_IDLE_RELEASE_MINUTES);
     }
 
     @Override
@@ -129,6 +131,16 @@ public final class PluginConfig extends ConfigFile
         writer.putSetting(PluginStandardValues.PREGENERATOR_MAX_CHUNKS_PER_TICK, this.PregeneratorMaxChunksPerTick,
 		        "The number of chunks the pre-generator is allowed to generate for each server tick.",
 		        "Higher numbers make pre-generation faster but increase memory usage and will cause lag.");       
+
+        writer.putSetting(PluginStandardValues.SLOW_CHUNK_THRESHOLD, this.SlowChunkThreshold,
+		        "Generating or populating a chunk that takes longer than this many milliseconds is logged",
+		        "to SlowChunks.log, with the time spent on each step and the slowest resources.",
+		        "Useful for finding the BO3s or resources that slow down a preset. Set to 0 to disable.");
+
+        writer.putSetting(PluginStandardValues.DIMENSION_IDLE_RELEASE_MINUTES, this.DimensionIdleReleaseMinutes,
+		        "Forge only: Dimensions that have been unloaded for this many minutes release their terrain",
+		        "generator and caches. They are recreated from the configs when the dimension loads again.",
+		        "Set to 0 to keep them in memory until the server stops.");
     }
 
     public LogLevels getLogLevel()
@@ -146,5 +158,15 @@ public final class PluginConfig extends ConfigFile
 	 * Higher values make pre-generation faster but can cause lag and increased memory usage.
 	 */
 	public int PregeneratorMaxChunksPerTick = 1;
+
+	/**
+	 * Chunks that take longer than this many milliseconds to generate or populate are logged. 0 disables this.
+	 */
+	public int SlowChunkThreshold = 1000;
+
+	/**
+	 * Forge only: Unloaded dimensions release their generator and caches after this many minutes. 0 disables this.
+	 */
+	public int DimensionIdleReleaseMinutes = 10;
 	
 }
@@ -13,14 +13,18 @@ import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
 import com.khorn.terraincontrol.configuration.standard.StandardBiomeTemplate;
 import com.khorn.terraincontrol.configuration.standard.WorldStandardValues;
 import com.khorn.terraincontrol.customobjects.CustomObjectCollection;
-import com.khorn.terraincontrol.customobjects.CustomObjectLoader;
+import com.khorn.terraincontrol.customobjects.CustomObjectStructureCache;
+import com.khorn.terraincontrol.customobjects.SharedCustomObjects;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.helpers.FileHelper;
+import com.khorn.terraincontrol.util.helpers.ParallelHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
 
 import java.io.File;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  * Holds the WorldConfig and all BiomeConfigs.
@@ -51,12 +55,30 @@ public final class ServerConfigProvider implements ConfigProvider
      * Must be simple array for fast access. Warning: some ids may contain
      * null values, always check.
      */
-    private LocalBiome[] biomes;
+    private volatile LocalBiome[] biomes;
 
     /**
      * The number of loaded biomes.
      */
     private int biomesCount;
+
+    /**
+     * The directories the biomes were loaded from.
+     */
+    private List<File> biomeDirs;
+
+    /**
+     * The raw settings of all biomes, kept so that single biomes can be
+     * reloaded.
+     */
+    private Map<String, BiomeConfigStub> biomeConfigStubs;
+
+    /**
+     * Fingerprints of the config files at the time they were loaded, see
+     * {@link #getFingerprint(File)}. Biome name => fingerprint
+     */
+    private Map<String, String> biomeFileFingerprints;
+    private String worldConfigFingerprint;
     
     /**
      * Loads the settings from the given directory for the given world.
@@ -90,24 +112,41 @@ public final class ServerConfigProvider implements ConfigProvider
      */
     private void loadSettings(boolean loadCustomObjects)
     {
-    	if(loadCustomObjects)
-    	{	    	
-	        SettingsMap worldConfigSettings = loadWorldConfig();
-	        loadBiomes(worldConfigSettings);
-	
-	        // We have to wait for the loading in order to get things like
-	        // temperature
-	        worldConfig.biomeGroupManager.processBiomeData(world);
-    	} else {    		
-	        loadCustomObjects();
-	
-	        SettingsMap worldConfigSettings = loadWorldConfig();
-	        loadBiomes(worldConfigSettings);
-	
-	        // We have to wait for the loading in order to get things like
-	        // temperature
-	        worldConfig.biomeGroupManager.processBiomeData(world);
-    	}
+        if (!loadCustomObjects)
+        {
+            loadCustomObjects();
+        }
+
+        biomeDirs = establishBiomeFolders();
+
+        // Use the snapshot of the previous load if no files have changed
+        // since, otherwise capture the files in a new snapshot
+        File snapshotFile = new File(settingsDir, WorldStandardValues.CONFIG_SNAPSHOT_FILE_NAME);
+        String snapshotKey = ConfigSnapshot.computeKey(settingsDir, biomeDirs);
+        ConfigSnapshot snapshot = ConfigSnapshot.read(snapshotFile, snapshotKey);
+        ConfigSnapshot newSnapshot = snapshot == null ? new ConfigSnapshot(snapshotKey) : null;
+
+        SettingsMap worldConfigSettings = loadWorldConfig(snapshot, newSnapshot);
+        loadBiomes(worldConfigSettings, biomeDirs, snapshot, newSnapshot);
+
+        // We have to wait for the loading in order to get things like
+        // temperature
+        worldConfig.biomeGroupManager.processBiomeData(world);
+
+        // Only save the snapshot if the files weren't updated while loading,
+        // otherwise the snapshot would be outdated right away
+        if (newSnapshot != null && snapshotKey.equals(ConfigSnapshot.computeKey(settingsDir, biomeDirs)))
+        {
+            newSnapshot.write(snapshotFile);
+        }
+
+        // Remember the state of the files, for reloading changed biomes
+        worldConfigFingerprint = getFingerprint(new File(settingsDir, WorldStandardValues.WORLD_CONFIG_FILE_NAME));
+        biomeFileFingerprints = new HashMap<String, String>();
+        for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+        {
+            biomeFileFingerprints.put(biomeConfigStub.getBiomeName(), getFingerprint(biomeConfigStub.getFile()));
+        }
     }
 
     private void loadCustomObjects()
@@ -124,19 +163,28 @@ public final class ServerConfigProvider implements ConfigProvider
                     oldWorldObjectsDir.getName(), worldObjectsDir.getName(), world.getName());
         }
 
-        Map<String, CustomObjectLoader> objectLoaders = TerrainControl.getCustomObjectManager().getObjectLoaders();
-
-        customObjects = new CustomObjectCollection(objectLoaders, worldObjectsDir);
-        customObjects.setFallback(TerrainControl.getCustomObjectManager().getGlobalObjects());
-        TerrainControl.log(LogMarker.INFO, "{} world custom objects loaded.", customObjects.getAll().size());
+        // Worlds using the same preset share their objects
+        customObjects = SharedCustomObjects.acquire(worldObjectsDir);
     }
 
-    private SettingsMap loadWorldConfig()
+    private SettingsMap loadWorldConfig(ConfigSnapshot snapshot, ConfigSnapshot newSnapshot)
     {
         File worldConfigFile = new File(settingsDir, WorldStandardValues.WORLD_CONFIG_FILE_NAME);
-        SettingsMap settingsMap = FileSettingsReader.read(world.getName(), worldConfigFile);
+        SettingsMap settingsMap;
+        if (snapshot != null)
+        {
+            settingsMap = snapshot.createWorldConfigSettings(world.getName());
+        } else
+        {
+            settingsMap = FileSettingsReader.read(world.getName(), worldConfigFile);
+            newSnapshot.captureWorldConfig(settingsMap);
+        }
         this.worldConfig = new WorldConfig(settingsDir, settingsMap, world, customObjects);
-        FileSettingsWriter.writeToFile(worldConfig.getSettingsAsMap(), worldConfigFile, worldConfig.SettingsMode);
+        if (snapshot == null)
+        {
+            // When loaded from the snapshot, the file is already up to date
+            FileSettingsWriter.writeToFile(worldConfig.getSettingsAsMap(), worldConfigFile, worldConfig.SettingsMode);
+        }
 
         return settingsMap;
     }
@@ -147,9 +195,8 @@ public final class ServerConfigProvider implements ConfigProvider
     	FileSettingsWriter.writeToFile(worldConfig.getSettingsAsMap(), worldConfigFile, worldConfig.SettingsMode);
     }
 
-    private void loadBiomes(SettingsMap worldConfigSettings)
+    private List<File> establishBiomeFolders()
     {
-        // Establish folders
         List<File> biomeDirs = new ArrayList<File>(2);
         // OpenTerrainGenerator/worlds/<WorldName>/<WorldBiomes/
         biomeDirs.add(new File(settingsDir, correctOldBiomeConfigFolder(settingsDir)));
@@ -157,7 +204,11 @@ public final class ServerConfigProvider implements ConfigProvider
         biomeDirs.add(new File(TerrainControl.getEngine().getTCDataFolder(), PluginStandardValues.BiomeConfigDirectoryName));
 
         FileHelper.makeFolders(biomeDirs);
+        return biomeDirs;
+    }
 
+    private void loadBiomes(SettingsMap worldConfigSettings, List<File> biomeDirs, ConfigSnapshot snapshot, ConfigSnapshot newSnapshot)
+    {
         // Build a set of all biomes to load
         Collection<BiomeLoadInstruction> biomesToLoad = new HashSet<BiomeLoadInstruction>();
         biomesToLoad.addAll(world.getDefaultBiomes());
@@ -172,12 +223,29 @@ public final class ServerConfigProvider implements ConfigProvider
                     worldConfig.worldHeightScale)));
         }
 
-        // Load all files
+        // Load all files, or restore them from the snapshot
         BiomeConfigFinder biomeConfigFinder = new BiomeConfigFinder(worldConfig, TerrainControl.getPluginConfig().biomeConfigExtension);
-        Map<String, BiomeConfigStub> biomeConfigStubs = biomeConfigFinder.findBiomes(biomeDirs, biomesToLoad);
+        Map<String, BiomeConfigStub> biomeConfigStubs = null;
+        if (snapshot != null)
+        {
+            biomeConfigStubs = biomeConfigFinder.restoreBiomes(snapshot, biomesToLoad);
+        }
+        boolean writeFiles = biomeConfigStubs == null;
+        if (biomeConfigStubs == null)
+        {
+            biomeConfigStubs = biomeConfigFinder.findBiomes(biomeDirs, biomesToLoad);
+            if (newSnapshot != null)
+            {
+                for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+                {
+                    newSnapshot.captureBiome(biomeConfigStub.getBiomeName(), biomeConfigStub.getFile(), biomeConfigStub.getSettings());
+                }
+            }
+        }
 
         // Read all settings
-        Map<String, BiomeConfig> loadedBiomes = readAndWriteSettings(worldConfigSettings, biomeConfigStubs);
+        Map<String, BiomeConfig> loadedBiomes = readAndWriteSettings(worldConfigSettings, biomeConfigStubs, biomeConfigStubs, writeFiles);
+        this.biomeConfigStubs = biomeConfigStubs;
 
         // Index all necessary settings
         String loadedBiomeNames = indexSettings(loadedBiomes);
@@ -205,15 +273,201 @@ public final class ServerConfigProvider implements ConfigProvider
     @Override
     public void reload()
     {
+        Object event = FlightRecorderEvent.CONFIG_RELOAD.begin();
+
         // Clear biome collections
         Arrays.fill(this.biomes, null);        
         this.biomesCount = 0;
 
         // Load again
         loadSettings(true);
+
+        if (event != null)
+        {
+            FlightRecorderEvent.CONFIG_RELOAD.commit(event, world.getName(), true);
+        }
     }
 
-    private Map<String, BiomeConfig> readAndWriteSettings(SettingsMap worldConfigSettings, Map<String, BiomeConfigStub> biomeConfigStubs)
+    /**
+     * Reloads only the biomes whose files have changed since they were
+     * loaded, along with the biomes that inherit settings or mobs from
+     * them. All other biomes are left alone. The reloaded biomes keep their
+     * ids, so biomes that were already generated and cached stay valid.
+     *
+     * <p>When WorldConfig.ini has changed or a biome file has gone missing,
+     * nothing is reloaded, as those changes can affect all biomes. Use
+     * {@link #reload()} in that case.
+     * @return The names of the reloaded biomes, or null if everything needs
+     * to be reloaded.
+     */
+    public Collection<String> reloadChangedBiomes()
+    {
+        String currentWorldConfigFingerprint = getFingerprint(new File(settingsDir, WorldStandardValues.WORLD_CONFIG_FILE_NAME));
+        if (currentWorldConfigFingerprint == null || !currentWorldConfigFingerprint.equals(worldConfigFingerprint))
+        {
+            return null;
+        }
+
+        Set<String> changedBiomes = new HashSet<String>();
+        for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+        {
+            String fingerprint = getFingerprint(biomeConfigStub.getFile());
+            if (fingerprint == null)
+            {
+                return null;
+            }
+            if (!fingerprint.equals(biomeFileFingerprints.get(biomeConfigStub.getBiomeName())))
+            {
+                changedBiomes.add(biomeConfigStub.getBiomeName());
+            }
+        }
+        if (changedBiomes.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        // Started here, the event only covers actual reloads
+        Object event = FlightRecorderEvent.CONFIG_RELOAD.begin();
+
+        // Read the affected biomes again, inheriting from the already
+        // loaded settings of the other biomes
+        Set<String> affectedBiomes = findDependentBiomes(changedBiomes);
+        List<BiomeLoadInstruction> biomesToLoad = new ArrayList<BiomeLoadInstruction>(affectedBiomes.size());
+        for (String biomeName : affectedBiomes)
+        {
+            biomesToLoad.add(biomeConfigStubs.get(biomeName).getLoadInstructions());
+        }
+        BiomeConfigFinder biomeConfigFinder = new BiomeConfigFinder(worldConfig, TerrainControl.getPluginConfig().biomeConfigExtension);
+        Map<String, BiomeConfigStub> reloadedStubs = biomeConfigFinder.findBiomes(biomeDirs, biomesToLoad);
+        Map<String, BiomeConfigStub> allStubs = new HashMap<String, BiomeConfigStub>(biomeConfigStubs);
+        allStubs.putAll(reloadedStubs);
+        Map<String, BiomeConfig> reloadedBiomes = readAndWriteSettings(null, allStubs, reloadedStubs, true);
+
+        // Needed to look up ReplaceToBiomeName
+        Map<String, BiomeConfig> allBiomes = new HashMap<String, BiomeConfig>();
+        for (LocalBiome biome : biomes)
+        {
+            if (biome != null)
+            {
+                allBiomes.put(biome.getName(), biome.getBiomeConfig());
+            }
+        }
+        allBiomes.putAll(reloadedBiomes);
+
+        // Replace the biomes in a copy of the array, so that the new biomes
+        // become visible all at once
+        LocalBiome[] newBiomes = biomes.clone();
+        for (BiomeConfig biomeConfig : reloadedBiomes.values())
+        {
+            int generationId = worldConfig.customBiomeGenerationIds.get(biomeConfig.getName());
+            int savedId = getSavedId(biomeConfig, generationId, allBiomes);
+            LocalBiome biome = world.createBiomeFor(biomeConfig, new BiomeIds(generationId, savedId), this);
+            newBiomes[generationId] = biome;
+
+            if (this.worldConfig.biomeColorMap != null)
+            {
+                // Forget the old color of the biome
+                this.worldConfig.biomeColorMap.values().removeAll(Collections.singleton(generationId));
+            }
+            indexWorldSettings(biomeConfig, biome);
+        }
+        this.biomes = newBiomes;
+        worldConfig.biomeGroupManager.processBiomeData(world);
+
+        // Remember the new state
+        this.biomeConfigStubs = allStubs;
+        for (BiomeConfigStub biomeConfigStub : reloadedStubs.values())
+        {
+            biomeFileFingerprints.put(biomeConfigStub.getBiomeName(), getFingerprint(biomeConfigStub.getFile()));
+        }
+
+        // Structures are chosen using the settings of the biome they start
+        // in. Cached biome ids and terrain stay valid for the other biomes,
+        // as the reloaded biomes keep their ids and the biome layers are
+        // not rebuilt. ChunkProviderTC notices the new biome array itself.
+        CustomObjectStructureCache structureCache = world.getStructureCache();
+        if (structureCache != null)
+        {
+            structureCache.forgetStructuresInBiomes(affectedBiomes);
+        }
+
+        TerrainControl.log(LogMarker.INFO, "{} biomes reloaded: {}", affectedBiomes.size(), affectedBiomes);
+        if (event != null)
+        {
+            FlightRecorderEvent.CONFIG_RELOAD.commit(event, world.getName(), false);
+        }
+        return affectedBiomes;
+    }
+
+    /**
+     * Finds all biomes that inherit settings or mobs from the given biomes,
+     * directly or indirectly.
+     * @param biomeNames The biomes.
+     * @return A new set with the given biomes and all biomes that depend on
+     * them.
+     */
+    private Set<String> findDependentBiomes(Set<String> biomeNames)
+    {
+        Set<String> dependentBiomes = new LinkedHashSet<String>(biomeNames);
+        boolean addedBiome = true;
+        while (addedBiome)
+        {
+            addedBiome = false;
+            for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+            {
+                if (dependentBiomes.contains(biomeConfigStub.getBiomeName()))
+                {
+                    continue;
+                }
+
+                boolean dependent = dependentBiomes.contains(biomeConfigStub.getSettings().getSetting(BiomeStandardValues.BIOME_EXTENDS));
+                String inheritMobsBiomeNames = biomeConfigStub.getSettings().getSetting(BiomeStandardValues.INHERIT_MOBS_BIOME_NAME,
+                        biomeConfigStub.getLoadInstructions().getBiomeTemplate().defaultInheritMobsBiomeName);
+                if (inheritMobsBiomeNames != null)
+                {
+                    for (String inheritMobsBiomeName : inheritMobsBiomeNames.split(","))
+                    {
+                        dependent |= dependentBiomes.contains(inheritMobsBiomeName);
+                    }
+                }
+
+                if (dependent)
+                {
+                    dependentBiomes.add(biomeConfigStub.getBiomeName());
+                    addedBiome = true;
+                }
+            }
+        }
+        return dependentBiomes;
+    }
+
+    /**
+     * Gets a fingerprint of the given file, which changes when the file is
+     * modified.
+     * @param file The file.
+     * @return The fingerprint, or null if the file doesn't exist.
+     */
+    private static String getFingerprint(File file)
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+        return file.length() + ":" + file.lastModified();
+    }
+
+    /**
+     * Reads the biome configs and optionally writes them back to disk.
+     * @param worldConfigSettings The raw settings of the world config.
+     * @param allStubs            All biomes, for looking up inherited
+     *                            settings.
+     * @param biomeConfigStubs    The biomes to read.
+     * @param writeFiles          Whether the settings must be written back
+     *                            to the files.
+     * @return The biome configs.
+     */
+    private Map<String, BiomeConfig> readAndWriteSettings(SettingsMap worldConfigSettings, Map<String, BiomeConfigStub> allStubs,
+            Map<String, BiomeConfigStub> biomeConfigStubs, final boolean writeFiles)
     {
         Map<String, BiomeConfig> loadedBiomes = new HashMap<String, BiomeConfig>();
 
@@ -223,25 +477,82 @@ public final class ServerConfigProvider implements ConfigProvider
             //biomeConfigStub.getSettings().setFallback(worldConfigSettings); // TODO: Make sure this can be removed safely
 
             // Inheritance
-            processInheritance(biomeConfigStubs, biomeConfigStub, 0);
-            processMobInheritance(biomeConfigStubs, biomeConfigStub, 0);
+            // Mob inheritance can query the world, so this stays on this thread
+            processInheritance(allStubs, biomeConfigStub, 0);
+            processMobInheritance(allStubs, biomeConfigStub, 0);
+        }
 
-            // Settings reading
-            BiomeConfig biomeConfig = new BiomeConfig(biomeConfigStub.getLoadInstructions(), biomeConfigStub, biomeConfigStub.getSettings(), worldConfig);
-            loadedBiomes.put(biomeConfigStub.getBiomeName(), biomeConfig);
+        // Reading a biome config reads the settings of the biomes it
+        // extends, and may rename old settings in its own settings map. So
+        // all biomes with the same inheritance depth can be read in parallel,
+        // as long as the biomes they extend have already been read.
+        for (List<BiomeConfigStub> biomeConfigStubsAtDepth : groupByInheritanceDepth(biomeConfigStubs))
+        {
+            List<Callable<BiomeConfig>> biomeConfigReaders = new ArrayList<Callable<BiomeConfig>>();
+            for (final BiomeConfigStub biomeConfigStub : biomeConfigStubsAtDepth)
+            {
+                biomeConfigReaders.add(new Callable<BiomeConfig>()
+                {
+                    @Override
+                    public BiomeConfig call()
+                    {
+                        // Settings reading
+                        BiomeConfig biomeConfig = new BiomeConfig(biomeConfigStub.getLoadInstructions(), biomeConfigStub, biomeConfigStub.getSettings(), worldConfig);
+
+                        // Settings writing (not needed when loaded from the
+                        // snapshot, as the files are already up to date)
+                        if (writeFiles)
+                        {
+                            File writeFile = biomeConfigStub.getFile();
+                            if (!biomeConfig.biomeExtends.isEmpty())
+                            {
+                                writeFile = new File(writeFile.getAbsolutePath() + ".inherited");
+                            }
+                            FileSettingsWriter.writeToFile(biomeConfig.getSettingsAsMap(), writeFile, worldConfig.SettingsMode);
+                        }
+                        return biomeConfig;
+                    }
+                });
+            }
 
-            // Settings writing
-            File writeFile = biomeConfigStub.getFile();
-            if (!biomeConfig.biomeExtends.isEmpty())
+            for (BiomeConfig biomeConfig : ParallelHelper.invokeAll(biomeConfigReaders))
             {
-                writeFile = new File(writeFile.getAbsolutePath() + ".inherited");
+                loadedBiomes.put(biomeConfig.getName(), biomeConfig);
             }
-            FileSettingsWriter.writeToFile(biomeConfig.getSettingsAsMap(), writeFile, worldConfig.SettingsMode);
         }
 
         return loadedBiomes;
     }
 
+    /**
+     * Groups the biomes by the length of their BiomeExtends chain. Biomes
+     * that don't extend another biome are in the first group, biomes
+     * extending those are in the second group, etc.
+     * @param biomeConfigStubs All biomes.
+     * @return The groups.
+     */
+    private List<List<BiomeConfigStub>> groupByInheritanceDepth(Map<String, BiomeConfigStub> biomeConfigStubs)
+    {
+        List<List<BiomeConfigStub>> groups = new ArrayList<List<BiomeConfigStub>>();
+        for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+        {
+            int depth = 0;
+            BiomeConfigStub extendedBiomeConfig = biomeConfigStubs.get(biomeConfigStub.getSettings().getSetting(BiomeStandardValues.BIOME_EXTENDS));
+            while (extendedBiomeConfig != null && depth <= MAX_INHERITANCE_DEPTH)
+            {
+                depth++;
+                extendedBiomeConfig = biomeConfigStubs.get(extendedBiomeConfig.getSettings().getSetting(BiomeStandardValues.BIOME_EXTENDS));
+            }
+
+            while (groups.size() <= depth)
+            {
+                groups.add(new ArrayList<BiomeConfigStub>());
+            }
+            groups.get(depth).add(biomeConfigStub);
+        }
+        return groups;
+    }
+
     /**
      * Gets the generation id that the given biome should have, based on
      * {@link DefaultBiome the default biomes} and
@@ -286,27 +597,7 @@ public final class ServerConfigProvider implements ConfigProvider
 
             int requestedGenerationId = getRequestedGenerationId(biomeConfig);
 
-            // Get correct saved id (defaults to generation id, but can be set
-            // to use the generation id of another biome)
-            int requestedSavedId = requestedGenerationId;
-            if (!biomeConfig.replaceToBiomeName.isEmpty())
-            {
-                BiomeConfig replaceToConfig = loadedBiomes.get(biomeConfig.replaceToBiomeName);
-                if (replaceToConfig == null)
-                {
-                    TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} doesn't exist", biomeConfig.getName(),
-                            biomeConfig.replaceToBiomeName);
-                    biomeConfig.replaceToBiomeName = "";
-                } else if (!replaceToConfig.replaceToBiomeName.isEmpty())
-                {
-                    TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} also has a ReplaceToBiomeName value",
-                            biomeConfig.getName(), biomeConfig.replaceToBiomeName);
-                    biomeConfig.replaceToBiomeName = "";
-                } else
-                {
-                    requestedSavedId = getRequestedGenerationId(replaceToConfig);
-                }
-            }
+            int requestedSavedId = getSavedId(biomeConfig, requestedGenerationId, loadedBiomes);
 
             // Create biome
             LocalBiome biome = world.createBiomeFor(biomeConfig, new BiomeIds(requestedGenerationId, requestedSavedId), this);
@@ -318,29 +609,7 @@ public final class ServerConfigProvider implements ConfigProvider
             // Update WorldConfig with actual id
             worldConfig.customBiomeGenerationIds.put(biome.getName(), generationId);
 
-            // Indexing ReplacedBlocks
-            if (!this.worldConfig.BiomeConfigsHaveReplacement)
-            {
-                this.worldConfig.BiomeConfigsHaveReplacement = biomeConfig.replacedBlocks.hasReplaceSettings();
-            }
-
-            // Indexing MaxSmoothRadius
-            if (this.worldConfig.maxSmoothRadius < biomeConfig.smoothRadius)
-            {
-                this.worldConfig.maxSmoothRadius = biomeConfig.smoothRadius;
-            }
-
-            // Indexing BiomeColor
-            if (this.worldConfig.biomeMode == TerrainControl.getBiomeModeManager().FROM_IMAGE)
-            {
-                if (this.worldConfig.biomeColorMap == null)
-                {
-                    this.worldConfig.biomeColorMap = new HashMap<Integer, Integer>();
-                }
-
-                int color = biomeConfig.biomeColor;
-                this.worldConfig.biomeColorMap.put(color, biome.getIds().getGenerationId());
-            }
+            indexWorldSettings(biomeConfig, biome);
         }
 
         // Forge dimensions are seperate worlds that can share biome configs so 
@@ -367,6 +636,73 @@ public final class ServerConfigProvider implements ConfigProvider
         return loadedBiomeNames.toString();
     }
     
+    /**
+     * Gets the saved id of the given biome.
+     * @param biomeConfig  The biome.
+     * @param generationId Generation id of the biome.
+     * @param allBiomes    All biomes of the world, for looking up the
+     *                     ReplaceToBiomeName biome.
+     * @return The saved id.
+     */
+    private int getSavedId(BiomeConfig biomeConfig, int generationId, Map<String, BiomeConfig> allBiomes)
+    {
+        // Get correct saved id (defaults to generation id, but can be set
+        // to use the generation id of another biome)
+        int requestedSavedId = generationId;
+        if (!biomeConfig.replaceToBiomeName.isEmpty())
+        {
+            BiomeConfig replaceToConfig = allBiomes.get(biomeConfig.replaceToBiomeName);
+            if (replaceToConfig == null)
+            {
+                TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} doesn't exist", biomeConfig.getName(),
+                        biomeConfig.replaceToBiomeName);
+                biomeConfig.replaceToBiomeName = "";
+            } else if (!replaceToConfig.replaceToBiomeName.isEmpty())
+            {
+                TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} also has a ReplaceToBiomeName value",
+                        biomeConfig.getName(), biomeConfig.replaceToBiomeName);
+                biomeConfig.replaceToBiomeName = "";
+            } else
+            {
+                requestedSavedId = getRequestedGenerationId(replaceToConfig);
+            }
+        }
+        return requestedSavedId;
+    }
+
+    /**
+     * Updates the settings in the WorldConfig that depend on the settings
+     * of all biomes.
+     * @param biomeConfig The config of the biome.
+     * @param biome       The biome.
+     */
+    private void indexWorldSettings(BiomeConfig biomeConfig, LocalBiome biome)
+    {
+        // Indexing ReplacedBlocks
+        if (!this.worldConfig.BiomeConfigsHaveReplacement)
+        {
+            this.worldConfig.BiomeConfigsHaveReplacement = biomeConfig.replacedBlocks.hasReplaceSettings();
+        }
+
+        // Indexing MaxSmoothRadius
+        if (this.worldConfig.maxSmoothRadius < biomeConfig.smoothRadius)
+        {
+            this.worldConfig.maxSmoothRadius = biomeConfig.smoothRadius;
+        }
+
+        // Indexing BiomeColor
+        if (this.worldConfig.biomeMode == TerrainControl.getBiomeModeManager().FROM_IMAGE)
+        {
+            if (this.worldConfig.biomeColorMap == null)
+            {
+                this.worldConfig.biomeColorMap = new HashMap<Integer, Integer>();
+            }
+
+            int color = biomeConfig.biomeColor;
+            this.worldConfig.biomeColorMap.put(color, biome.getIds().getGenerationId());
+        }
+    }
+
     private void processInheritance(Map<String, BiomeConfigStub> biomeConfigStubs, BiomeConfigStub biomeConfigStub, int currentDepth)
     {
         if (biomeConfigStub.biomeExtendsProcessed)
@@ -53,6 +53,7 @@ public class WorldConfig extends ConfigFile
 
     // Biome generator
     public int GenerationDepth;
+    public int biomeLayerCacheDepth;
     public int BiomeRarityScale;
 
     public int LandRarity;
@@ -145,6 +146,7 @@ public class WorldConfig extends ConfigFile
 
     // Terrain
     public boolean oldTerrainGenerator;
+    public boolean shareNoiseColumns;
 
     public int waterLevelMax;
     public int waterLevelMin;
@@ -395,6 +397,13 @@ public class WorldConfig extends ConfigFile
             decrementByOne(reader, WorldStandardValues.RAVINE_MAX_ALTITUDE);
             decrementByOne(reader, WorldStandardValues.RAVINE_MAX_LENGTH);
         }
+
+        // Terrain noise used to be sampled per chunk, keep doing that for
+        // existing worlds
+        if (!reader.isNewConfig() && !reader.hasSetting(WorldStandardValues.SHARE_NOISE_COLUMNS))
+        {
+            reader.putSetting(WorldStandardValues.SHARE_NOISE_COLUMNS, false);
+        }
     }
 
     private void decrementByOne(SettingsMap reader, Setting<Integer> setting)
@@ -410,6 +419,7 @@ public class WorldConfig extends ConfigFile
     {
         LandSize = lowerThanOrEqualTo(LandSize, GenerationDepth);
         LandFuzzy = lowerThanOrEqualTo(LandFuzzy, GenerationDepth - LandSize);
+        biomeLayerCacheDepth = lowerThanOrEqualTo(biomeLayerCacheDepth, GenerationDepth);
 
         riverRarity = lowerThanOrEqualTo(riverRarity, GenerationDepth);
         riverSize = lowerThanOrEqualTo(riverSize, GenerationDepth - riverRarity);
@@ -469,6 +479,7 @@ public class WorldConfig extends ConfigFile
 
         // Biome placement
         this.GenerationDepth = reader.getSetting(WorldStandardValues.GENERATION_DEPTH);
+        this.biomeLayerCacheDepth = reader.getSetting(WorldStandardValues.BIOME_LAYER_CACHE_DEPTH);
 
         this.BiomeRarityScale = reader.getSetting(WorldStandardValues.BIOME_RARITY_SCALE);
         this.LandRarity = reader.getSetting(WorldStandardValues.LAND_RARITY);
@@ -593,6 +604,7 @@ public class WorldConfig extends ConfigFile
         this.objectSpawnRatio = reader.getSetting(WorldStandardValues.OBJECT_SPAWN_RATIO);
         this.resourcesSeed = reader.getSetting(WorldStandardValues.RESOURCES_SEED);
         this.populationBoundsCheck = reader.getSetting(WorldStandardValues.POPULATION_BOUNDS_CHECK);
+        this.shareNoiseColumns = reader.getSetting(WorldStandardValues.SHARE_NOISE_COLUMNS);
         this.populateUsingSavedBiomes = reader.getSetting(WorldStandardValues.POPULATE_USING_SAVED_BIOMES);
 
         this.oldTerrainGenerator = this.ModeTerrain == TerrainMode.OldGenerator;
@@ -830,6 +842,11 @@ public class WorldConfig extends ConfigFile
                 "Max biome rarity from 1 to infinity. By default this is 100, but you can raise it for",
                 "fine-grained control, or to create biomes with a chance of occurring smaller than 1/100.");
 
+        writer.putSetting(WorldStandardValues.BIOME_LAYER_CACHE_DEPTH, this.biomeLayerCacheDepth,
+                "Remembers the biome layout up to this size, from 0 to GenerationDepth, so that it doesn't have to be",
+                "calculated again for every chunk. Lower values cache a coarser layout, which takes less memory, but",
+                "saves less work. Does not change the generated biomes. Set to -1 to disable.");
+
         // Biome groups
         writer.smallTitle("Biome Groups",
                 "Minecraft groups similar biomes together, so that they spawn next to each other.",
@@ -981,6 +998,13 @@ public class WorldConfig extends ConfigFile
                 "While this allows you to spawn larger objects, it also makes terrain generation",
                 "dependant on the direction you explored the world in.");
 
+        writer.putSetting(WorldStandardValues.SHARE_NOISE_COLUMNS, this.shareNoiseColumns,
+                "Set this to true to reuse the terrain noise of the chunk borders for the",
+                "neighbouring chunks, which makes terrain generation faster. The terrain noise is",
+                "then sampled per column, which gives slightly different terrain than the old",
+                "per chunk sampling. Existing worlds are set to false, so that new chunks still",
+                "line up with the chunks that were already generated.");
+
         if (this.populateUsingSavedBiomes)
         {
 
@@ -6,8 +6,12 @@ import com.khorn.terraincontrol.logging.LogMarker;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collection;
 
 /**
@@ -60,13 +64,29 @@ public final class FileSettingsWriter
     }
 
     /**
-     * Writes the settings map to the file.
+     * Writes the settings map to the file. If the file already has exactly
+     * these contents, it is left untouched.
      * @param settingsMap The settings map.
      * @throws IOException If an IO error occurs.
      */
     public void write(SettingsMap settingsMap) throws IOException
     {
-        BufferedWriter writer = null;
+        StringWriter stringWriter = new StringWriter();
+        BufferedWriter writer = new BufferedWriter(stringWriter);
+        for (RawSettingValue entry : settingsMap.getRawSettings())
+        {
+            writeEntry(writer, entry);
+        }
+        writer.flush();
+        String contents = stringWriter.toString();
+
+        if (contents.equals(readExistingContents()))
+        {
+            // Nothing changed, don't touch the file
+            return;
+        }
+
+        Writer fileWriter = null;
         try
         {
             File directory = file.getParentFile();
@@ -75,16 +95,55 @@ public final class FileSettingsWriter
                 throw new IOException("Could not create directory '" + file.getParentFile() + "'");
             }
 
-            writer = new BufferedWriter(new FileWriter(file));
-            for (RawSettingValue entry : settingsMap.getRawSettings())
+            fileWriter = new FileWriter(file);
+            fileWriter.write(contents);
+        } finally
+        {
+            if (fileWriter != null)
+            {
+                fileWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the current contents of the file.
+     * @return The contents, or null if the file doesn't exist or can't be
+     * read.
+     */
+    private String readExistingContents()
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        Reader reader = null;
+        try
+        {
+            reader = new FileReader(file);
+            StringBuilder contents = new StringBuilder((int) file.length());
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1)
             {
-                writeEntry(writer, entry);
+                contents.append(buffer, 0, read);
             }
+            return contents.toString();
+        } catch (IOException e)
+        {
+            return null;
         } finally
         {
-            if (writer != null)
+            if (reader != null)
             {
-                writer.close();
+                try
+                {
+                    reader.close();
+                } catch (IOException e)
+                {
+                    // Ignore
+                }
             }
         }
     }
@@ -32,4 +32,8 @@ public class PluginStandardValues extends Settings
     public static final Setting<Boolean> SPAWN_LOG = booleanSetting("SpawnLog", false);
     
     public static final Setting<Integer> PREGENERATOR_MAX_CHUNKS_PER_TICK = intSetting("PregeneratorMaxChunksPerTick", 1, 1, Integer.MAX_VALUE);   
+
+    public static final Setting<Integer> SLOW_CHUNK_THRESHOLD = intSetting("SlowChunkThreshold", 1000, 0, Integer.MAX_VALUE);
+
+    public static final Setting<Integer> DIMENSION_IDLE_RELEASE_MINUTES = intSetting("DimensionIdleReleaseMinutes", 10, 0, Integer.MAX_VALUE);
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ public class WorldStandardValues extends Settings
     public static final String WORLD_CONFIG_FILE_NAME = "WorldConfig.ini";
     public static final String WORLD_BIOMES_DIRECTORY_NAME = "WorldBiomes";
     public static final String WORLD_OBJECTS_DIRECTORY_NAME = "WorldObjects";
+    public static final String CONFIG_SNAPSHOT_FILE_NAME = "ConfigSnapshot.bin";
 
     /**
      * Temperatures below this temperature will cause the biome to be covered
@@ -66,6 +67,7 @@ public class WorldStandardValues extends Settings
             WORLD_HEIGHT_SCALE_BITS = intSetting("WorldHeightScaleBits", 7, 5, 8),
             WORLD_HEIGHT_CAP_BITS = intSetting("WorldHeightCapBits", 8, 5, 8),
             GENERATION_DEPTH = intSetting("GenerationDepth", 10, 1, 20),
+            BIOME_LAYER_CACHE_DEPTH = intSetting("BiomeLayerCacheDepth", -1, -1, 20),
             BIOME_RARITY_SCALE = intSetting("BiomeRarityScale", 100, 1, Integer.MAX_VALUE),
             LAND_RARITY = intSetting("LandRarity", 99, 1, 100),
             LAND_SIZE = intSetting("LandSize", 0, 0, 20),
@@ -129,6 +131,7 @@ public class WorldStandardValues extends Settings
             FLAT_BEDROCK = booleanSetting("FlatBedrock", false),
             REMOVE_SURFACE_STONE = booleanSetting("RemoveSurfaceStone", false),
             POPULATION_BOUNDS_CHECK = booleanSetting("PopulationBoundsCheck", true),
+            SHARE_NOISE_COLUMNS = booleanSetting("ShareNoiseColumns", true),
             NETHER_FORTRESSES_ENABLED = booleanSetting("NetherFortressesEnabled", false),
             STRONGHOLDS_ENABLED = booleanSetting("StrongholdsEnabled", true),
             VILLAGES_ENABLED = booleanSetting("VillagesEnabled", true),
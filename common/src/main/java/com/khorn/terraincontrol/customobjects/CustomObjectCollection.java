@@ -1,5 +1,6 @@
 package com.khorn.terraincontrol.customobjects;
 
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.configuration.io.BracketSettingsReader;
 import com.khorn.terraincontrol.configuration.io.SettingsMap;
 import com.khorn.terraincontrol.configuration.io.SimpleSettingsMap;
@@ -7,6 +8,7 @@ import com.khorn.terraincontrol.util.helpers.FileHelper;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a collection of custom objects. Those objects can be loaded from
@@ -17,6 +19,7 @@ public class CustomObjectCollection implements Iterable<CustomObject>
 {
     private final List<CustomObject> objects;
     private final Map<String, CustomObject> objectsByName;
+    private final Map<String, CustomObject[]> objectsByBiome;
     private CustomObjectCollection fallback;
 
     /**
@@ -26,6 +29,7 @@ public class CustomObjectCollection implements Iterable<CustomObject>
     {
         this.objects = new ArrayList<CustomObject>();
         this.objectsByName = new HashMap<String, CustomObject>();
+        this.objectsByBiome = new ConcurrentHashMap<String, CustomObject[]>();
     }
 
     /**
@@ -77,6 +81,7 @@ public class CustomObjectCollection implements Iterable<CustomObject>
         {
             objectsByName.put(lowerCaseName, object);
             objects.add(object);
+            objectsByBiome.clear();
         }
     }
 
@@ -151,6 +156,35 @@ public class CustomObjectCollection implements Iterable<CustomObject>
         return objects.get(random.nextInt(objects.size()));
     }
 
+    /**
+     * Gets all objects that want to spawn in the given biome, in the order
+     * they were loaded. Which objects want to spawn in a biome only depends
+     * on the name of the biome (see
+     * {@link CustomObject#hasPreferenceToSpawnIn(LocalBiome)}), so the
+     * result is calculated once for every biome name. The returned array
+     * must not be modified.
+     * @param biome The biome.
+     * @return The objects, may be empty.
+     */
+    public CustomObject[] getObjectsForBiome(LocalBiome biome)
+    {
+        CustomObject[] biomeObjects = objectsByBiome.get(biome.getName());
+        if (biomeObjects == null)
+        {
+            List<CustomObject> preferred = new ArrayList<CustomObject>();
+            for (CustomObject object : objects)
+            {
+                if (object.hasPreferenceToSpawnIn(biome))
+                {
+                    preferred.add(object);
+                }
+            }
+            biomeObjects = preferred.toArray(new CustomObject[preferred.size()]);
+            objectsByBiome.put(biome.getName(), biomeObjects);
+        }
+        return biomeObjects;
+    }
+
     /**
      * Gets the object with the given name.
      * @param name Name of the object.
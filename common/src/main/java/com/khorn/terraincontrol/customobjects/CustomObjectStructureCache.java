@@ -1,11 +1,14 @@
 package com.khorn.terraincontrol.customobjects;
 
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.generator.resource.CustomStructureGen;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
 
@@ -30,6 +33,36 @@ public class CustomObjectStructureCache
         structureCache.clear();
     }
 
+    /**
+     * Forgets the structures that start in one of the given biomes, so that
+     * they are created again using the new settings of those biomes. Used
+     * when only some biomes are reloaded.
+     * @param biomeNames Names of the biomes.
+     */
+    public void forgetStructuresInBiomes(Collection<String> biomeNames)
+    {
+        Iterator<ChunkCoordinate> iterator = structureCache.keySet().iterator();
+        while (iterator.hasNext())
+        {
+            ChunkCoordinate coord = iterator.next();
+            // Same position as used to choose the structure
+            LocalBiome biome = world.getBiome(coord.getChunkX() * 16 + 15, coord.getChunkZ() * 16 + 15);
+            if (biome == null || biomeNames.contains(biome.getName()))
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of structures that are currently cached.
+     * @return The number of structures.
+     */
+    public int getStructureCount()
+    {
+        return structureCache.size();
+    }
+
     public CustomObjectStructure getStructureStart(int chunkX, int chunkZ)
     {
         ChunkCoordinate coord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
@@ -46,7 +79,7 @@ public class CustomObjectStructureCache
             return structureStart;
         }
         // No structure found, create one
-        Random random = RandomHelper.getRandomForCoords(chunkX ^ 2, (chunkZ + 1) * 2, world.getSeed());
+        Random random = RandomHelper.getPooledRandomForCoords(chunkX ^ 2, (chunkZ + 1) * 2, world.getSeed());
         CustomStructureGen structureGen = world.getBiome(chunkX * 16 + 15, chunkZ * 16 + 15).getBiomeConfig().structureGen;
         if (structureGen != null)
         {
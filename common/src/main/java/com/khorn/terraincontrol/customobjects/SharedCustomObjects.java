@@ -0,0 +1,208 @@
+package com.khorn.terraincontrol.customobjects;
+
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.logging.LogMarker;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shares the custom objects of worlds that use the same preset. Only the
+ * objects are shared, see {@link #acquire(File)} for why the world and
+ * biome configs are not.
+ *
+ * <p>Every world loads the objects in its own WorldObjects directory. When
+ * several worlds (like the dimensions of a Forge server) are created from
+ * the same preset, those directories contain exactly the same files, so
+ * every world would parse and hold its own copy of the same objects. This
+ * class keys the loaded objects on the relative paths, sizes and
+ * modification dates of the files in the directory instead, so that those
+ * worlds share a single {@link CustomObjectCollection}.
+ *
+ * <p>Loaded objects don't depend on the world or the seed, and are not
+ * modified after loading, so sharing them is safe. The collections are
+ * reference counted: every {@link #acquire(File)} must be followed by a
+ * {@link #release(CustomObjectCollection)} when the world is unloaded.
+ */
+public final class SharedCustomObjects
+{
+    private static final class Entry
+    {
+        final CustomObjectCollection customObjects;
+        final CustomObjectCollection fallback;
+        int references;
+
+        Entry(CustomObjectCollection customObjects, CustomObjectCollection fallback)
+        {
+            this.customObjects = customObjects;
+            this.fallback = fallback;
+        }
+    }
+
+    private static final Map<String, Entry> entriesByKey = new HashMap<String, Entry>();
+    private static final Map<CustomObjectCollection, String> keysByCollection = new IdentityHashMap<CustomObjectCollection, String>();
+
+    private SharedCustomObjects()
+    {
+    }
+
+    /**
+     * Gets the objects in the given directory. If another world already
+     * loaded a directory with the same files, those objects are returned,
+     * otherwise the objects are loaded.
+     *
+     * <p>The WorldConfig and biome configs are still loaded by every world.
+     * Every world modifies its own WorldConfig (seed, pre-generation radius,
+     * world border, free biome ids, biome colors), and every biome config
+     * refers to the WorldConfig it was read with, so they cannot be shared
+     * without giving one world the settings of another. Their loading is
+     * sped up by {@link com.khorn.terraincontrol.configuration.ConfigSnapshot}
+     * instead.
+     * @param directory The directory.
+     * @return The objects.
+     */
+    public static synchronized CustomObjectCollection acquire(File directory)
+    {
+        CustomObjectManager customObjectManager = TerrainControl.getCustomObjectManager();
+        CustomObjectCollection globalObjects = customObjectManager.getGlobalObjects();
+        String key = computeKey(directory);
+
+        Entry entry = key == null ? null : entriesByKey.get(key);
+        if (entry != null && entry.fallback == globalObjects)
+        {
+            entry.references++;
+            TerrainControl.log(LogMarker.INFO, "{} world custom objects shared with {} other world(s) using the same objects.",
+                    entry.customObjects.getAll().size(), entry.references - 1);
+            return entry.customObjects;
+        }
+
+        CustomObjectCollection customObjects = new CustomObjectCollection(customObjectManager.getObjectLoaders(), directory);
+        customObjects.setFallback(globalObjects);
+        TerrainControl.log(LogMarker.INFO, "{} world custom objects loaded.", customObjects.getAll().size());
+
+        if (key != null)
+        {
+            entry = new Entry(customObjects, globalObjects);
+            entry.references = 1;
+            Entry oldEntry = entriesByKey.put(key, entry);
+            if (oldEntry != null)
+            {
+                // Made for outdated global objects, the worlds using it keep
+                // their reference, but no new worlds will get it
+                keysByCollection.remove(oldEntry.customObjects);
+            }
+            keysByCollection.put(customObjects, key);
+        }
+        return customObjects;
+    }
+
+    /**
+     * Releases objects obtained using {@link #acquire(File)}. When no world
+     * uses the objects anymore, they are removed from memory.
+     * @param customObjects The objects. Objects that were not obtained using
+     *                      {@link #acquire(File)} are ignored.
+     */
+    public static synchronized void release(CustomObjectCollection customObjects)
+    {
+        String key = keysByCollection.get(customObjects);
+        if (key == null)
+        {
+            return;
+        }
+        Entry entry = entriesByKey.get(key);
+        if (entry == null || entry.customObjects != customObjects)
+        {
+            keysByCollection.remove(customObjects);
+            return;
+        }
+        entry.references--;
+        if (entry.references <= 0)
+        {
+            entriesByKey.remove(key);
+            keysByCollection.remove(customObjects);
+        }
+    }
+
+    /**
+     * Computes a hash of the relative path, size and modification date of
+     * all files in the directory, like
+     * {@link com.khorn.terraincontrol.configuration.ConfigSnapshot#computeKey(File, java.util.List)}
+     * does for the config files. The absolute path is left out, so that
+     * copies of a preset (which keep the modification dates of the
+     * original files) get the same key.
+     * @param directory The directory.
+     * @return The hash, or null if the directory could not be read.
+     */
+    private static String computeKey(File directory)
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        if (!directory.isDirectory())
+        {
+            return null;
+        }
+        StringBuilder state = new StringBuilder();
+        if (!appendDirectoryState(state, directory, ""))
+        {
+            TerrainControl.log(LogMarker.WARN, "Failed to read {}, world custom objects will not be shared", directory);
+            return null;
+        }
+
+        byte[] hash;
+        try
+        {
+            hash = digest.digest(state.toString().getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        StringBuilder key = new StringBuilder(hash.length * 2);
+        for (byte b : hash)
+        {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16));
+            key.append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static boolean appendDirectoryState(StringBuilder state, File directory, String path)
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return false;
+        }
+        Arrays.sort(files);
+        for (File file : files)
+        {
+            String filePath = path + '/' + file.getName();
+            if (file.isDirectory())
+            {
+                if (!appendDirectoryState(state, file, filePath))
+                {
+                    return false;
+                }
+                continue;
+            }
+            state.append(filePath);
+            state.append(':').append(file.length());
+            state.append(':').append(file.lastModified());
+            state.append('\n');
+        }
+        return true;
+    }
+}
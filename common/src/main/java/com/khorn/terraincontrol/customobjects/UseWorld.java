@@ -42,14 +42,11 @@ public class UseWorld extends SimpleObject
     @Override
     public boolean spawnForced(LocalWorld world, Random random, Rotation rotation, int x, int y, int z)
     {
-        for (CustomObject object : world.getConfigs().getCustomObjects())
+        for (CustomObject object : world.getConfigs().getCustomObjects().getObjectsForBiome(world.getBiome(x, z)))
         {
-            if (object.hasPreferenceToSpawnIn(world.getBiome(x, z)))
+            if (object.spawnForced(world, random, rotation, x, y, z))
             {
-                if (object.spawnForced(world, random, rotation, x, y, z))
-                {
-                    return true;
-                }
+                return true;
             }
         }
         return false;
@@ -59,12 +56,14 @@ public class UseWorld extends SimpleObject
     public boolean process(LocalWorld world, Random rand, ChunkCoordinate chunkCoord)
     {
         // Pick one object, try to spawn that, if that fails, try with another
-        // object, as long as the objectSpawnRatio cap isn't reached.
+        // object, as long as the objectSpawnRatio cap isn't reached. Only
+        // objects that want to spawn in this biome are picked.
 
         WorldConfig worldConfig = world.getConfigs().getWorldConfig();
-        CustomObjectCollection customObjects = world.getConfigs().getCustomObjects();
+        LocalBiome biome = world.getBiome(chunkCoord.getBlockXCenter(), chunkCoord.getBlockZCenter());
+        CustomObject[] candidates = world.getConfigs().getCustomObjects().getObjectsForBiome(biome);
 
-        if (customObjects.isEmpty())
+        if (candidates.length == 0)
             return false;
 
         boolean objectSpawned = false;
@@ -76,10 +75,7 @@ public class UseWorld extends SimpleObject
 
             spawnattemps++;
 
-            CustomObject selectedObject = customObjects.getRandomObject(rand);
-
-            if (!selectedObject.hasPreferenceToSpawnIn(world.getBiome(chunkCoord.getBlockXCenter(), chunkCoord.getBlockZCenter())))
-                continue;
+            CustomObject selectedObject = candidates[rand.nextInt(candidates.length)];
 
             // Process the object
             objectSpawned = selectedObject.process(world, rand, chunkCoord);
@@ -1,5 +1,6 @@
 package com.khorn.terraincontrol.customobjects;
 
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 
@@ -18,11 +19,9 @@ public class UseWorldAll extends UseWorld
     {
         boolean spawnedAtLeastOneObject = false;
 
-        for (CustomObject selectedObject : world.getConfigs().getCustomObjects())
+        LocalBiome biome = world.getBiome(chunkCoord.getBlockXCenter(), chunkCoord.getBlockZCenter());
+        for (CustomObject selectedObject : world.getConfigs().getCustomObjects().getObjectsForBiome(biome))
         {
-            if (!selectedObject.hasPreferenceToSpawnIn(world.getBiome(chunkCoord.getBlockXCenter(), chunkCoord.getBlockZCenter())))
-                continue;
-
             // Process the object
             if (selectedObject.process(world, rand, chunkCoord))
             {
@@ -12,6 +12,7 @@ import com.khorn.terraincontrol.customobjects.Branch;
 import com.khorn.terraincontrol.customobjects.CustomObject;
 import com.khorn.terraincontrol.customobjects.CustomObjectCoordinate;
 import com.khorn.terraincontrol.customobjects.StructurePartSpawnHeight;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.util.BoundingBox;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.MaterialSet;
@@ -143,6 +144,7 @@ public class BO2 extends ConfigFile implements CustomObject
     @Override
     public boolean spawnForced(LocalWorld world, Random random, Rotation rotation, int x, int y, int z)
     {
+        Object event = FlightRecorderEvent.OBJECT_SPAWN.begin();
         ObjectCoordinate[] data = this.data[rotation.getRotationId()];
 
         // Spawn
@@ -156,6 +158,10 @@ public class BO2 extends ConfigFile implements CustomObject
                 world.setBlock((x + point.x), y + point.y, z + point.z, point.material);
             }
         }
+        if (event != null)
+        {
+            FlightRecorderEvent.OBJECT_SPAWN.commit(event, world.getName(), getName(), rotation, data.length, x, y, z);
+        }
         return true;
     }
 
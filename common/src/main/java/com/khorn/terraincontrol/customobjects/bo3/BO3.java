@@ -9,6 +9,7 @@ import com.khorn.terraincontrol.configuration.io.SettingsMap;
 import com.khorn.terraincontrol.customobjects.*;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.OutsideSourceBlock;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.SpawnHeightEnum;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.util.BoundingBox;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.Rotation;
@@ -175,9 +176,15 @@ public class BO3 implements CustomObject
     @Override
     public boolean spawnForced(LocalWorld world, Random random, Rotation rotation, int x, int y, int z)
     {
+        Object event = FlightRecorderEvent.OBJECT_SPAWN.begin();
         BO3PlaceableFunction[] blocks = settings.blocks[rotation.getRotationId()];
         ObjectExtrusionHelper oeh = new ObjectExtrusionHelper(settings.extrudeMode, settings.extrudeThroughBlocks);
         // Spawn
+        // Blocks are written directly and in order. Source block checks,
+        // extrusion and canSpawnAt of later objects read these blocks, and
+        // all resources of a chunk share one seeded Random, so objects
+        // can't be planned on other threads without changing the world
+        // generated for existing seeds.
 
         for (BO3PlaceableFunction block : blocks)
         {
@@ -209,6 +216,10 @@ public class BO3 implements CustomObject
         }
         
         oeh.extrude(world, random, x, y, z);
+        if (event != null)
+        {
+            FlightRecorderEvent.OBJECT_SPAWN.commit(event, world.getName(), getName(), rotation, blocks.length, x, y, z);
+        }
         return true;
     }
 
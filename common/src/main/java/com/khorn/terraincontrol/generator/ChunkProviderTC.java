@@ -18,10 +18,17 @@ import com.khorn.terraincontrol.generator.noise.NoiseGeneratorPerlinOctaves;
 import com.khorn.terraincontrol.generator.terrain.CavesGen;
 import com.khorn.terraincontrol.generator.terrain.RavinesGen;
 import com.khorn.terraincontrol.generator.terrain.TerrainGenBase;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 
 // Please don`t remove this. This disable warnings about x+0 arithmetic
@@ -55,6 +62,25 @@ public class ChunkProviderTC
     private double[] noise6;
     private float[] nearBiomeWeightArray;
 
+    /**
+     * The BiomeConfig of every cell of {@link #biomeArray}, looked up once
+     * per chunk instead of once for every column that looks at the cell.
+     */
+    private BiomeConfig[] biomeConfigArray;
+
+    /**
+     * For every biome id, the smoothing weight of that biome for every
+     * position in the smoothing area, see {@link #getBiomeWeights(int)}.
+     * The weights only depend on the biome and the position, so they are
+     * calculated once instead of for every column.
+     */
+    private final float[][] biomeWeightTables = new float[1024][];
+
+    /**
+     * Like {@link #biomeWeightTables}, but for the river height of the biome.
+     */
+    private final float[][] riverWeightTables = new float[1024][];
+
     private double riverVol;
     private double riverHeight;
     // Always false if improved rivers disabled
@@ -73,6 +99,54 @@ public class ChunkProviderTC
     private int[] riverArray;
     // Water level at lower resolution
     private final byte[] waterLevelRaw = new byte[25];
+
+    /**
+     * Maximum amount of noise columns that are remembered. Neighbouring
+     * chunks share the columns on their edges. The pregenerator generates
+     * the world in growing rings, so the edge of a ring is shared with the
+     * ring generated just before. A ring with a radius of r chunks has about
+     * 32 * r edge columns, so this is enough to share the edges of rings up
+     * to a radius of about 500 chunks. Each column takes about 400 bytes.
+     */
+    private static final int COLUMN_CACHE_SIZE = 16384;
+
+    /**
+     * A column of the noise grid, with the raw terrain for every y section.
+     */
+    private static final class NoiseColumn
+    {
+        final double[] terrain;
+        /**
+         * Generation ids of all biomes in the smoothing area of the column.
+         * When one of those biomes is reloaded, the column is outdated.
+         */
+        final int[] biomeIds;
+        byte waterLevel;
+
+        NoiseColumn(double[] terrain, int[] biomeIds)
+        {
+            this.terrain = terrain;
+            this.biomeIds = biomeIds;
+        }
+    }
+
+    private final Map<Long, NoiseColumn> columnCache = new LinkedHashMap<Long, NoiseColumn>(COLUMN_CACHE_SIZE, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, NoiseColumn> eldest)
+        {
+            return size() > COLUMN_CACHE_SIZE;
+        }
+    };
+    private WorldConfig cachedWorldConfig;
+    private LocalBiome[] cachedBiomes;
+    private double[] columnNoise1;
+    private double[] columnNoise2;
+    private double[] columnNoise3;
+    private double[] columnNoise6;
+    private final SlowChunkDetector slowChunkDetector;
     // Water level for each column
     private final byte[] waterLevel = new byte[CHUNK_X_SIZE * CHUNK_Z_SIZE];
 
@@ -86,10 +160,11 @@ public class ChunkProviderTC
     {
         this.configProvider = configs;
         this.localWorld = world;
+        this.slowChunkDetector = new SlowChunkDetector(world, "terrain generation");
         this.heightCap = world.getHeightCap();
         this.heightScale = world.getHeightScale();
 
-        this.random = new Random(world.getSeed());
+        this.random = new FastRandom(world.getSeed());
 
         this.noiseGen1 = new NoiseGeneratorPerlinOctaves(this.random, 16);
         this.noiseGen2 = new NoiseGeneratorPerlinOctaves(this.random, 16);
@@ -122,26 +197,65 @@ public class ChunkProviderTC
 
     }
 
+    /**
+     * Gets the amount of noise columns that are currently cached.
+     * @return The amount of columns.
+     */
+    public int getCachedColumnCount()
+    {
+        return this.columnCache.size();
+    }
+
+    /**
+     * Estimates the memory used by the cached noise columns: their terrain
+     * and biome arrays, the column objects and the map entries.
+     * @return The estimate, in bytes.
+     */
+    public long estimateColumnCacheBytes()
+    {
+        long bytes = 0;
+        for (NoiseColumn column : this.columnCache.values())
+        {
+            // Arrays and objects have a header of 16 bytes, map entries
+            // take about 40 bytes, the boxed key 16 bytes
+            bytes += 16 + column.terrain.length * 8 + 16 + column.biomeIds.length * 4 + 24 + 40 + 16;
+        }
+        return bytes;
+    }
+
     public void generate(ChunkBuffer chunkBuffer)
     {
         ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
         int x = chunkCoord.getChunkX();
         int z = chunkCoord.getChunkZ();
         this.random.setSeed(x * 341873128712L + z * 132897987541L);
+        this.slowChunkDetector.startChunk(chunkCoord);
+        Object event = FlightRecorderEvent.CHUNK_TERRAIN.begin();
 
+        this.slowChunkDetector.startStage("Terrain");
         generateTerrain(chunkBuffer);
 
+        this.slowChunkDetector.startStage("Surface");
         boolean dry = addBiomeBlocksAndCheckWater(chunkBuffer);
 
+        this.slowChunkDetector.startStage("Caves");
         this.caveGen.generate(chunkBuffer);
+        this.slowChunkDetector.startStage("Ravines");
         this.canyonGen.generate(chunkBuffer);
 
         WorldConfig worldConfig = configProvider.getWorldConfig();
         if (worldConfig.ModeTerrain == WorldConfig.TerrainMode.Normal || worldConfig.ModeTerrain == WorldConfig.TerrainMode.OldGenerator)
         {
+            this.slowChunkDetector.startStage("Structures");
             this.localWorld.prepareDefaultStructures(x, z, dry);
         }
 
+        // Biome array now holds the biomes of this chunk
+        this.slowChunkDetector.endChunk(toBiomeConfig(this.biomeArray[8 * CHUNK_X_SIZE + 8]).getName(), -1);
+        if (event != null)
+        {
+            FlightRecorderEvent.CHUNK_TERRAIN.commit(event, this.localWorld.getName(), x, z);
+        }
     }
 
     protected void generateTerrain(ChunkBuffer chunkBuffer)
@@ -295,7 +409,7 @@ public class ChunkProviderTC
         this.noise4 = this.noiseGen4.a(this.noise4, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), CHUNK_X_SIZE,
                 CHUNK_Z_SIZE, d1 * 2.0D, d1 * 2.0D, 1.0D);
 
-        GeneratingChunk generatingChunk = new GeneratingChunk(random, waterLevel, noise4, heightCap);
+        GeneratingChunk generatingChunk = new GeneratingChunk(random, chunkCoord, waterLevel, noise4, heightCap);
 
         for (int x = 0; x < CHUNK_X_SIZE; x++)
         {
@@ -332,6 +446,161 @@ public class ChunkProviderTC
         }
 
         WorldConfig worldConfig = configProvider.getWorldConfig();
+        LocalBiome[] biomes = this.configProvider.getBiomeArray();
+        if (this.cachedWorldConfig != worldConfig)
+        {
+            // Settings were reloaded
+            this.columnCache.clear();
+            Arrays.fill(this.biomeWeightTables, null);
+            Arrays.fill(this.riverWeightTables, null);
+        } else if (this.cachedBiomes != biomes)
+        {
+            // Some biomes were reloaded
+            forgetReloadedBiomes(this.cachedBiomes, biomes);
+        }
+        this.cachedWorldConfig = worldConfig;
+        this.cachedBiomes = biomes;
+
+        int biomeCells = (NOISE_MAX_X + this.maxSmoothDiameter) * (NOISE_MAX_Z + this.maxSmoothDiameter);
+        if (this.biomeConfigArray == null)
+        {
+            this.biomeConfigArray = new BiomeConfig[biomeCells];
+        }
+        for (int i = 0; i < biomeCells && i < this.biomeArray.length; i++)
+        {
+            this.biomeConfigArray[i] = toBiomeConfig(this.biomeArray[i]);
+        }
+
+        // The old terrain generator reads 3D noise using a 2D index, and
+        // biome generators that cannot generate unzoomed biomes provide the
+        // biomes of the chunk instead of the noise grid. For those, a column
+        // depends on the position of the chunk, so columns cannot be shared.
+        // Worlds created before columns were shared keep the per chunk
+        // sampling, which rounds slightly differently
+        if (!worldConfig.shareNoiseColumns || worldConfig.oldTerrainGenerator
+                || !this.localWorld.getBiomeGenerator().canGenerateUnZoomed())
+        {
+            generateTerrainNoiseForChunk(xOffset, yOffset, zOffset, maxYSections, usedYSections, worldConfig);
+            return;
+        }
+
+        for (int x = 0; x < NOISE_MAX_X; x++)
+        {
+            for (int z = 0; z < NOISE_MAX_Z; z++)
+            {
+                Long key = Long.valueOf(((long) (xOffset + x) << 32) | ((zOffset + z) & 0xFFFFFFFFL));
+                NoiseColumn column = this.columnCache.get(key);
+                if (column == null || column.terrain.length != maxYSections)
+                {
+                    column = generateTerrainNoiseColumn(x, z, xOffset, yOffset, zOffset, maxYSections, usedYSections, worldConfig);
+                    this.columnCache.put(key, column);
+                }
+                System.arraycopy(column.terrain, 0, this.rawTerrain, (x * NOISE_MAX_Z + z) * maxYSections, maxYSections);
+                this.waterLevelRaw[x * NOISE_MAX_X + z] = column.waterLevel;
+            }
+        }
+    }
+
+    /**
+     * Calculates a single column of the noise grid. The noise is sampled for
+     * this column alone, so that the result only depends on the position of
+     * the column and not on the chunk that happens to calculate it.
+     */
+    private NoiseColumn generateTerrainNoiseColumn(int x, int z, int xOffset, int yOffset, int zOffset, int maxYSections, int usedYSections,
+            WorldConfig worldConfig)
+    {
+        final double xzScale = 684.41200000000003D * worldConfig.getFractureHorizontal();
+        final double yScale = 684.41200000000003D * worldConfig.getFractureVertical();
+
+        this.columnNoise6 = this.noiseGen6.Noise2D(this.columnNoise6, xOffset + x, zOffset + z, 1, 1, 200.0D, 200.0D);
+        this.columnNoise3 = this.noiseGen3.Noise3D(this.columnNoise3, xOffset + x, yOffset, zOffset + z, 1, maxYSections, 1,
+                xzScale / 80.0D, yScale / 160.0D, xzScale / 80.0D);
+        this.columnNoise1 = this.noiseGen1.Noise3D(this.columnNoise1, xOffset + x, yOffset, zOffset + z, 1, maxYSections, 1,
+                xzScale, yScale, xzScale);
+        this.columnNoise2 = this.noiseGen2.Noise3D(this.columnNoise2, xOffset + x, yOffset, zOffset + z, 1, maxYSections, 1,
+                xzScale, yScale, xzScale);
+
+        NoiseColumn column = new NoiseColumn(new double[maxYSections], getColumnBiomeIds(x, z));
+        generateTerrainColumn(x, z, 0, 0, this.columnNoise1, this.columnNoise2, this.columnNoise3, this.columnNoise6,
+                column.terrain, 0, maxYSections, usedYSections, worldConfig);
+        column.waterLevel = this.waterLevelRaw[x * NOISE_MAX_X + z];
+        return column;
+    }
+
+    /**
+     * Gets the generation ids of all biomes in the smoothing area of a
+     * column of the noise grid.
+     */
+    private int[] getColumnBiomeIds(int x, int z)
+    {
+        final int biomeArrayWidth = NOISE_MAX_X + this.maxSmoothDiameter;
+        int[] biomeIds = new int[4];
+        int biomeCount = 0;
+        for (int nextZ = 0; nextZ < this.maxSmoothDiameter; nextZ++)
+        {
+            for (int nextX = 0; nextX < this.maxSmoothDiameter; nextX++)
+            {
+                int biomeId = this.biomeArray[x + nextX + (z + nextZ) * biomeArrayWidth];
+                int i = 0;
+                while (i < biomeCount && biomeIds[i] != biomeId)
+                {
+                    i++;
+                }
+                if (i == biomeCount)
+                {
+                    if (biomeCount == biomeIds.length)
+                    {
+                        biomeIds = Arrays.copyOf(biomeIds, biomeCount * 2);
+                    }
+                    biomeIds[biomeCount++] = biomeId;
+                }
+            }
+        }
+        return Arrays.copyOf(biomeIds, biomeCount);
+    }
+
+    /**
+     * Removes the cached columns and weights of the biomes that were
+     * replaced by a reload. Columns of other biomes stay valid, as
+     * reloaded biomes keep their generation id.
+     * @param oldBiomes The biome array before the reload.
+     * @param newBiomes The biome array after the reload.
+     */
+    private void forgetReloadedBiomes(LocalBiome[] oldBiomes, LocalBiome[] newBiomes)
+    {
+        BitSet reloadedIds = new BitSet();
+        int length = Math.max(oldBiomes == null ? 0 : oldBiomes.length, newBiomes.length);
+        for (int id = 0; id < length; id++)
+        {
+            LocalBiome oldBiome = oldBiomes != null && id < oldBiomes.length ? oldBiomes[id] : null;
+            LocalBiome newBiome = id < newBiomes.length ? newBiomes[id] : null;
+            if (oldBiome != newBiome)
+            {
+                reloadedIds.set(id);
+                if (id < this.biomeWeightTables.length)
+                {
+                    this.biomeWeightTables[id] = null;
+                    this.riverWeightTables[id] = null;
+                }
+            }
+        }
+
+        Iterator<NoiseColumn> iterator = this.columnCache.values().iterator();
+        while (iterator.hasNext())
+        {
+            for (int biomeId : iterator.next().biomeIds)
+            {
+                if (reloadedIds.get(biomeId))
+                {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void generateTerrainNoiseForChunk(int xOffset, int yOffset, int zOffset, int maxYSections, int usedYSections, WorldConfig worldConfig)
+    {
         final double xzScale = 684.41200000000003D * worldConfig.getFractureHorizontal();
         final double yScale = 684.41200000000003D * worldConfig.getFractureVertical();
 
@@ -356,109 +625,110 @@ public class ChunkProviderTC
         {
             for (int z = 0; z < NOISE_MAX_Z; z++)
             {
+                generateTerrainColumn(x, z, i2D, i3D, this.noise1, this.noise2, this.noise3, this.noise6,
+                        this.rawTerrain, i3D, maxYSections, usedYSections, worldConfig);
+                i2D++;
+                i3D += maxYSections;
+            }
+        }
+    }
 
-                final int biomeId = this.biomeArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))];
-
-                // For forge make sure all dimensions are queried since the biome we're looking for may be owned by another dimension
-                LocalBiome biome = TerrainControl.isForge ? TerrainControl.getBiomeAllWorlds(biomeId) : this.configProvider.getBiomeByIdOrNull(biomeId);
-
-                final BiomeConfig biomeConfig = biome.getBiomeConfig();
-            	
-                double noiseHeight = this.noise6[i2D] / 8000.0D;
-                if (noiseHeight < 0.0D)
-                {
-                    noiseHeight = -noiseHeight * 0.3D;
-                }
-                noiseHeight = noiseHeight * 3.0D - 2.0D;
-
-                if (noiseHeight < 0.0D)
-                {
-                    noiseHeight /= 2.0D;
-                    if (noiseHeight < -1.0D)
-                    {
-                        noiseHeight = -1.0D;
-                    }
-                    noiseHeight -= biomeConfig.maxAverageDepth;
-                    noiseHeight /= 1.4D;
-                    noiseHeight /= 2.0D;
-                } else
-                {
-                    if (noiseHeight > 1.0D)
-                    {
-                        noiseHeight = 1.0D;
-                    }
-                    noiseHeight += biomeConfig.maxAverageHeight;
-                    noiseHeight /= 8.0D;
-                }
-
-                if (!worldConfig.oldTerrainGenerator)
-                {
-                    if (worldConfig.improvedRivers)
-                        this.biomeFactorWithRivers(x, z, usedYSections, noiseHeight);
-                    else
-                        this.biomeFactor(x, z, usedYSections, noiseHeight);
-                } else
-                    this.oldBiomeFactor(x, z, i2D, usedYSections, noiseHeight);
+    private void generateTerrainColumn(int x, int z, int i2D, int i3D, double[] noise1, double[] noise2, double[] noise3, double[] noise6,
+            double[] terrain, int terrainIndex, int maxYSections, int usedYSections, WorldConfig worldConfig)
+    {
+        final BiomeConfig biomeConfig = this.biomeConfigArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))];
 
-                i2D++;
+        double noiseHeight = noise6[i2D] / 8000.0D;
+        if (noiseHeight < 0.0D)
+        {
+            noiseHeight = -noiseHeight * 0.3D;
+        }
+        noiseHeight = noiseHeight * 3.0D - 2.0D;
 
-                for (int y = 0; y < maxYSections; y++)
-                {
-                    double output;
-                    double d8;
+        if (noiseHeight < 0.0D)
+        {
+            noiseHeight /= 2.0D;
+            if (noiseHeight < -1.0D)
+            {
+                noiseHeight = -1.0D;
+            }
+            noiseHeight -= biomeConfig.maxAverageDepth;
+            noiseHeight /= 1.4D;
+            noiseHeight /= 2.0D;
+        } else
+        {
+            if (noiseHeight > 1.0D)
+            {
+                noiseHeight = 1.0D;
+            }
+            noiseHeight += biomeConfig.maxAverageHeight;
+            noiseHeight /= 8.0D;
+        }
 
-                    if (this.riverFound)
-                    {
-                        d8 = (this.riverHeight - y) * 12.0D * 128.0D / this.heightCap / this.riverVol;
-                    } else
-                    {
-                        d8 = (this.heightFactor - y) * 12.0D * 128.0D / this.heightCap / this.volatilityFactor;
-                    }
+        if (!worldConfig.oldTerrainGenerator)
+        {
+            if (worldConfig.improvedRivers)
+                this.biomeFactorWithRivers(x, z, usedYSections, noiseHeight);
+            else
+                this.biomeFactor(x, z, usedYSections, noiseHeight);
+        } else
+            this.oldBiomeFactor(x, z, i2D, usedYSections, noiseHeight);
 
-                    if (d8 > 0.0D)
-                    {
-                        d8 *= 4.0D;
-                    }
+        for (int y = 0; y < maxYSections; y++)
+        {
+            double output;
+            double d8;
 
-                    final double vol1 = this.noise1[i3D] / 512.0D * biomeConfig.volatility1;
-                    final double vol2 = this.noise2[i3D] / 512.0D * biomeConfig.volatility2;
+            if (this.riverFound)
+            {
+                d8 = (this.riverHeight - y) * 12.0D * 128.0D / this.heightCap / this.riverVol;
+            } else
+            {
+                d8 = (this.heightFactor - y) * 12.0D * 128.0D / this.heightCap / this.volatilityFactor;
+            }
 
-                    final double noise = (this.noise3[i3D] / 10.0D + 1.0D) / 2.0D;
-                    if (noise < biomeConfig.volatilityWeight1)
-                    {
-                        output = vol1;
-                    } else if (noise > biomeConfig.volatilityWeight2)
-                    {
-                        output = vol2;
-                    } else
-                    {
-                        output = vol1 + (vol2 - vol1) * noise;
-                    }
+            if (d8 > 0.0D)
+            {
+                d8 *= 4.0D;
+            }
 
-                    if (!biomeConfig.disableNotchHeightControl)
-                    {
-                        output += d8;
+            final double vol1 = noise1[i3D] / 512.0D * biomeConfig.volatility1;
+            final double vol2 = noise2[i3D] / 512.0D * biomeConfig.volatility2;
 
-                        if (y > maxYSections - 4)
-                        {
-                            final double d12 = (y - (maxYSections - 4)) / 3.0F;
-                            // Reduce last three layers
-                            output = output * (1.0D - d12) + -10.0D * d12;
-                        }
+            final double noise = (noise3[i3D] / 10.0D + 1.0D) / 2.0D;
+            if (noise < biomeConfig.volatilityWeight1)
+            {
+                output = vol1;
+            } else if (noise > biomeConfig.volatilityWeight2)
+            {
+                output = vol2;
+            } else
+            {
+                output = vol1 + (vol2 - vol1) * noise;
+            }
 
-                    }
-                    if (this.riverFound)
-                    {
-                        output += biomeConfig.riverHeightMatrix[y];
-                    } else
-                    {
-                        output += biomeConfig.heightMatrix[y];
-                    }
+            if (!biomeConfig.disableNotchHeightControl)
+            {
+                output += d8;
 
-                    this.rawTerrain[i3D] = output;
-                    i3D++;
+                if (y > maxYSections - 4)
+                {
+                    final double d12 = (y - (maxYSections - 4)) / 3.0F;
+                    // Reduce last three layers
+                    output = output * (1.0D - d12) + -10.0D * d12;
                 }
+
             }
+            if (this.riverFound)
+            {
+                output += biomeConfig.riverHeightMatrix[y];
+            } else
+            {
+                output += biomeConfig.heightMatrix[y];
+            }
+
+            terrain[terrainIndex + y] = output;
+            i3D++;
         }
     }
 
@@ -500,8 +770,9 @@ public class ChunkProviderTC
         double heightSum = 0.0F;
         float biomeWeightSum = 0.0F;
 
-        final BiomeConfig centerBiomeConfig = toBiomeConfig(
-                this.biomeArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
+        final int biomeArrayWidth = NOISE_MAX_X + this.maxSmoothDiameter;
+        final int centerIndex = x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * biomeArrayWidth;
+        final BiomeConfig centerBiomeConfig = this.biomeConfigArray[centerIndex];
         final int lookRadius = centerBiomeConfig.smoothRadius;
 
         float nextBiomeHeight, biomeWeight;
@@ -509,14 +780,13 @@ public class ChunkProviderTC
         for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
         {
             for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
-            {                      	
-                final BiomeConfig nextBiomeConfig = toBiomeConfig(
-                        this.biomeArray[(x + nextX + this.maxSmoothRadius + (z + nextZ + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
+            {
+                final int nextIndex = centerIndex + nextX + nextZ * biomeArrayWidth;
+                final BiomeConfig nextBiomeConfig = this.biomeConfigArray[nextIndex];
 
                 nextBiomeHeight = nextBiomeConfig.biomeHeight;
 
-                biomeWeight = this.nearBiomeWeightArray[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
-                biomeWeight = Math.abs(biomeWeight);
+                biomeWeight = getBiomeWeights(this.biomeArray[nextIndex])[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)];
                 if (nextBiomeHeight > centerBiomeConfig.biomeHeight)
                 {
                     biomeWeight /= 2.0F;
@@ -549,12 +819,13 @@ public class ChunkProviderTC
         float riverHeightSum = 0.0F;
         float riverWeightSum = 0.0F;
 
-        final BiomeConfig biomeConfig = toBiomeConfig(
-                this.biomeArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
+        final int biomeArrayWidth = NOISE_MAX_X + this.maxSmoothDiameter;
+        final int centerIndex = x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * biomeArrayWidth;
+        final BiomeConfig biomeConfig = this.biomeConfigArray[centerIndex];
 
         final int lookRadius = biomeConfig.smoothRadius;
 
-        this.riverFound = this.riverArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))] == 1;
+        this.riverFound = this.riverArray[centerIndex] == 1;
 
         final float riverCenterHeight = this.riverFound ? biomeConfig.riverHeight : biomeConfig.biomeHeight;
 
@@ -565,13 +836,13 @@ public class ChunkProviderTC
         {
             for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
             {
+                final int nextIndex = centerIndex + nextX + nextZ * biomeArrayWidth;
+                final int weightIndex = nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter;
 
-                nextBiomeConfig = toBiomeConfig(
-                        this.biomeArray[(x + nextX + this.maxSmoothRadius + (z + nextZ + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
+                nextBiomeConfig = this.biomeConfigArray[nextIndex];
                 nextBiomeHeight = nextBiomeConfig.biomeHeight;
-                biomeWeight = this.nearBiomeWeightArray[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
+                biomeWeight = getBiomeWeights(this.biomeArray[nextIndex])[weightIndex];
 
-                biomeWeight = Math.abs(biomeWeight);
                 if (nextBiomeHeight > biomeConfig.biomeHeight)
                 {
                     biomeWeight /= 2.0F;
@@ -583,16 +854,15 @@ public class ChunkProviderTC
                 // River part
 
                 boolean isRiver = false;
-                if (this.riverArray[(x + nextX + this.maxSmoothRadius + (z + nextZ + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))] == 1)
+                if (this.riverArray[nextIndex] == 1)
                 {
                     this.riverFound = true;
                     isRiver = true;
                 }
 
                 nextRiverHeight = (isRiver) ? nextBiomeConfig.riverHeight : nextBiomeHeight;
-                riverWeight = this.nearBiomeWeightArray[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)] / (nextRiverHeight + 2.0F);
+                riverWeight = isRiver ? getRiverWeights(this.biomeArray[nextIndex])[weightIndex] : getBiomeWeights(this.biomeArray[nextIndex])[weightIndex];
 
-                riverWeight = Math.abs(riverWeight);
                 if (nextRiverHeight > riverCenterHeight)
                 {
                     nextRiverHeight = riverCenterHeight;
@@ -625,6 +895,51 @@ public class ChunkProviderTC
         this.riverHeight = ySections * (2.0D + riverHeightSum + noiseHeight * 0.2D) / 4.0D;
     }
 
+    /**
+     * Gets the weights of a biome when smoothing the height of the
+     * terrain, for every position in the smoothing area. Biomes with a
+     * higher height have a lower weight.
+     * @param biomeId The generation id of the biome.
+     * @return The weights, indexed like {@link #nearBiomeWeightArray}.
+     */
+    private float[] getBiomeWeights(int biomeId)
+    {
+        float[] weights = this.biomeWeightTables[biomeId];
+        if (weights == null)
+        {
+            weights = createWeights(toBiomeConfig(biomeId).biomeHeight);
+            this.biomeWeightTables[biomeId] = weights;
+        }
+        return weights;
+    }
+
+    /**
+     * Same as {@link #getBiomeWeights(int)}, but for the river height of
+     * the biome.
+     * @param biomeId The generation id of the biome.
+     * @return The weights, indexed like {@link #nearBiomeWeightArray}.
+     */
+    private float[] getRiverWeights(int biomeId)
+    {
+        float[] weights = this.riverWeightTables[biomeId];
+        if (weights == null)
+        {
+            weights = createWeights(toBiomeConfig(biomeId).riverHeight);
+            this.riverWeightTables[biomeId] = weights;
+        }
+        return weights;
+    }
+
+    private float[] createWeights(float height)
+    {
+        float[] weights = new float[this.nearBiomeWeightArray.length];
+        for (int i = 0; i < weights.length; i++)
+        {
+            weights[i] = Math.abs(this.nearBiomeWeightArray[i] / (height + 2.0F));
+        }
+        return weights;
+    }
+
     /**
      * Gets the BiomeConfig with the given id.
      * 
@@ -4,8 +4,11 @@ import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
 import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
 
 import com.khorn.terraincontrol.configuration.WorldConfig;
+import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -19,12 +22,15 @@ public final class GeneratingChunk
 
     public final int heightCap;
     public final Random random;
+    private final ChunkCoordinate chunkCoord;
     private final byte[] waterLevel;
     private final double[] surfaceNoise;
+    private Map<NoiseGeneratorNewOctaves, double[]> chunkNoise;
 
-    GeneratingChunk(Random random, byte[] waterLevel, double[] surfaceNoise, int heightCap)
+    GeneratingChunk(Random random, ChunkCoordinate chunkCoord, byte[] waterLevel, double[] surfaceNoise, int heightCap)
     {
         this.random = random;
+        this.chunkCoord = chunkCoord;
         this.waterLevel = waterLevel;
         this.surfaceNoise = surfaceNoise;
         this.heightCap = heightCap;
@@ -42,6 +48,36 @@ public final class GeneratingChunk
         return this.surfaceNoise[x + z * CHUNK_X_SIZE];
     }
 
+    /**
+     * Gets the values of a noise generator for all columns of this chunk.
+     * The values are calculated for the whole chunk in one go the first
+     * time they are requested, so that surface generators don't need to
+     * evaluate the noise column by column.
+     *
+     * @param generator The noise generator. Must always be used with the
+     *                  same scale.
+     * @param scale     The scale of the noise.
+     * @return The values, see
+     *         {@link NoiseGeneratorNewOctaves#fillGrid(double[], int, int, int, int, double)}.
+     *         The value for column (x, z) is at index
+     *         {@code x + z * }{@value ChunkCoordinate#CHUNK_X_SIZE}. Must not be
+     *         modified.
+     */
+    public double[] getChunkNoise(NoiseGeneratorNewOctaves generator, double scale)
+    {
+        if (this.chunkNoise == null)
+        {
+            this.chunkNoise = new IdentityHashMap<NoiseGeneratorNewOctaves, double[]>();
+        }
+        double[] noise = this.chunkNoise.get(generator);
+        if (noise == null)
+        {
+            noise = generator.fillGrid(null, this.chunkCoord.getBlockX(), this.chunkCoord.getBlockZ(), CHUNK_X_SIZE, CHUNK_Z_SIZE, scale);
+            this.chunkNoise.put(generator, noise);
+        }
+        return noise;
+    }
+
     /**
      * Gets the water level at the given position.
      * 
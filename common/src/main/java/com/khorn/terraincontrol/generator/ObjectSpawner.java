@@ -12,8 +12,10 @@ import com.khorn.terraincontrol.customobjects.bo3.BO3;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.SpawnHeightEnum;
 import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
 import com.khorn.terraincontrol.generator.resource.Resource;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.Rotation;
 
 import java.util.Arrays;
@@ -24,12 +26,14 @@ public class ObjectSpawner
     private final ConfigProvider configProvider;
     private final Random rand;
     private final LocalWorld world;
+    private final SlowChunkDetector slowChunkDetector;
 
     public ObjectSpawner(ConfigProvider configProvider, LocalWorld localWorld)
     {
         this.configProvider = configProvider;
-        this.rand = new Random();
+        this.rand = new FastRandom();
         this.world = localWorld;
+        this.slowChunkDetector = new SlowChunkDetector(localWorld, "population");
         new NoiseGeneratorNewOctaves(new Random(world.getSeed()), 4);
     }
 
@@ -55,6 +59,9 @@ public class ObjectSpawner
 	        }
 	        
 	        BiomeConfig biomeConfig = biome.getBiomeConfig();
+	        slowChunkDetector.startChunk(chunkCoord);
+	        Object event = FlightRecorderEvent.CHUNK_POPULATION.begin();
+	        slowChunkDetector.startStage("Structures");
 	
 	        // Get the random generator
 	        WorldConfig worldConfig = configProvider.getWorldConfig();
@@ -105,26 +112,37 @@ public class ObjectSpawner
 	        TerrainControl.firePopulationStartEvent(world, rand, hasVillage, chunkCoord);
 	        
 	        // Resource sequence
+	        slowChunkDetector.startStage("Resources");
 	        for (ConfigFunction<BiomeConfig> res : biomeConfig.resourceSequence)
 	        {
 	            if (res instanceof Resource)
 	            {
+	                long startTime = slowChunkDetector.startEntry();
 	                ((Resource) res).process(world, rand, hasVillage, chunkCoord);
+	                slowChunkDetector.endEntry(res, startTime);
 	            }
 	        }
 	        
 	        // Animals
+	        slowChunkDetector.startStage("Mobs");
 	        world.placePopulationMobs(biome, rand, chunkCoord);       
 	        
 	        // Snow and ice
+	        slowChunkDetector.startStage("Freezing");
 	        new FrozenSurfaceHelper(world).freezeChunk(chunkCoord);
 	
 	        // Replace blocks
+	        slowChunkDetector.startStage("ReplaceBlocks");
 	        world.replaceBlocks(chunkCoord);
 	        
 	        // Mark population ended
 	        TerrainControl.firePopulationEndEvent(world, rand, hasVillage, chunkCoord);
 	        world.endPopulation();
+	        slowChunkDetector.endChunk(biomeConfig.getName(), world.getPopulationBlockCount());
+	        if (event != null)
+	        {
+	            FlightRecorderEvent.CHUNK_POPULATION.commit(event, world.getName(), chunkCoord.getChunkX(), chunkCoord.getChunkZ(), biomeConfig.getName());
+	        }
 	        
 			processing = false;
 		} else {			
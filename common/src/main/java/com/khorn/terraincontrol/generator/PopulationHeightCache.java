@@ -0,0 +1,230 @@
+package com.khorn.terraincontrol.generator;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+
+import java.util.Arrays;
+
+/**
+ * Caches the heights of the columns in the four chunks that are being
+ * populated. Resources ask for the highest (solid/liquid) block of the same
+ * columns over and over, and without this cache every request scans the
+ * column again.
+ *
+ * <p>Heights are calculated lazily, the first time a column is requested.
+ * For every column, the lowest block that was looked at to calculate the
+ * cached heights is remembered. Placing a block at or above that block
+ * throws away the cached heights of the column, placing a block below it
+ * cannot change them.
+ *
+ * <p>Blocks that are placed without going through
+ * {@link LocalWorld#setBlock(int, int, int, LocalMaterialData)}, like
+ * vanilla trees, are not seen by this cache, so {@link #invalidateAll()}
+ * must be called after placing those.
+ */
+public final class PopulationHeightCache
+{
+    /**
+     * Value for heights that are not calculated yet.
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final int SIZE = ChunkCoordinate.CHUNK_X_SIZE * 2;
+
+    private final LocalWorld world;
+    private final int[] highestBlocks = new int[SIZE * SIZE];
+    private final int[] solidHeights = new int[SIZE * SIZE];
+    private final int[] liquidHeights = new int[SIZE * SIZE];
+    private final int[] lowestReadBlocks = new int[SIZE * SIZE];
+    private boolean enabled;
+    private int startX;
+    private int startZ;
+
+    /**
+     * Creates a new cache. The cache is disabled until
+     * {@link #enable(ChunkCoordinate)} is called.
+     * @param world The world, used to calculate the heights.
+     */
+    public PopulationHeightCache(LocalWorld world)
+    {
+        this.world = world;
+    }
+
+    /**
+     * Starts caching the heights of the four chunks being populated. Any
+     * previously cached heights are forgotten.
+     * @param populatingChunk The top left chunk of the four chunks.
+     */
+    public void enable(ChunkCoordinate populatingChunk)
+    {
+        this.startX = populatingChunk.getBlockX();
+        this.startZ = populatingChunk.getBlockZ();
+        this.enabled = true;
+        invalidateAll();
+    }
+
+    /**
+     * Stops caching the heights.
+     */
+    public void disable()
+    {
+        this.enabled = false;
+    }
+
+    /**
+     * Forgets all cached heights.
+     */
+    public void invalidateAll()
+    {
+        Arrays.fill(highestBlocks, UNKNOWN);
+        Arrays.fill(solidHeights, UNKNOWN);
+        Arrays.fill(liquidHeights, UNKNOWN);
+        Arrays.fill(lowestReadBlocks, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets whether the heights of the given column are cached.
+     * @param x X position of the column.
+     * @param z Z position of the column.
+     * @return True if the column is cached, false otherwise.
+     */
+    public boolean contains(int x, int z)
+    {
+        return enabled && x - startX >= 0 && x - startX < SIZE && z - startZ >= 0 && z - startZ < SIZE;
+    }
+
+    private int getIndex(int x, int z)
+    {
+        return (x - startX) * SIZE + (z - startZ);
+    }
+
+    /**
+     * Gets the cached value of {@link LocalWorld#getHighestBlockYAt(int, int)}.
+     * @param x X position of the column.
+     * @param z Z position of the column.
+     * @return The height, or {@link #UNKNOWN} if the column is not cached.
+     */
+    public int getHighestBlockY(int x, int z)
+    {
+        if (!contains(x, z))
+        {
+            return UNKNOWN;
+        }
+        return highestBlocks[getIndex(x, z)];
+    }
+
+    /**
+     * Stores the value of {@link LocalWorld#getHighestBlockYAt(int, int)}.
+     * Ignored if the column is not cached.
+     * @param x          X position of the column.
+     * @param z          Z position of the column.
+     * @param y          The height.
+     * @param heightMapY The height stored in the height map of the chunk.
+     *                   May be lower than the height if the height map was
+     *                   incorrect.
+     */
+    public void setHighestBlockY(int x, int z, int y, int heightMapY)
+    {
+        if (!contains(x, z))
+        {
+            return;
+        }
+        int index = getIndex(x, z);
+        highestBlocks[index] = y;
+        // Removing the block below the height map changes the height map
+        lowestReadBlocks[index] = Math.min(lowestReadBlocks[index], Math.min(y, heightMapY) - 1);
+    }
+
+    /**
+     * Calculates {@link LocalWorld#getSolidHeight(int, int)} using the cache.
+     * Must only be called if {@link #contains(int, int)} returns true.
+     * @param x X position of the column.
+     * @param z Z position of the column.
+     * @return The height.
+     */
+    public int getSolidHeight(int x, int z)
+    {
+        int index = getIndex(x, z);
+        int height = solidHeights[index];
+        if (height != UNKNOWN)
+        {
+            return height;
+        }
+
+        height = -1;
+        int y = world.getHighestBlockYAt(x, z) - 1;
+        for (; y > 0; y--)
+        {
+            if (world.getMaterial(x, y, z).isSolid())
+            {
+                height = y + 1;
+                break;
+            }
+        }
+
+        solidHeights[index] = height;
+        lowestReadBlocks[index] = Math.min(lowestReadBlocks[index], y);
+        return height;
+    }
+
+    /**
+     * Calculates {@link LocalWorld#getLiquidHeight(int, int)} using the
+     * cache. Must only be called if {@link #contains(int, int)} returns true.
+     * @param x X position of the column.
+     * @param z Z position of the column.
+     * @return The height.
+     */
+    public int getLiquidHeight(int x, int z)
+    {
+        int index = getIndex(x, z);
+        int height = liquidHeights[index];
+        if (height != UNKNOWN)
+        {
+            return height;
+        }
+
+        height = -1;
+        int y = world.getHighestBlockYAt(x, z) - 1;
+        for (; y > 0; y--)
+        {
+            LocalMaterialData material = world.getMaterial(x, y, z);
+            if (material.isLiquid())
+            {
+                height = y + 1;
+                break;
+            } else if (material.isSolid())
+            {
+                // Failed to find a liquid
+                break;
+            }
+        }
+
+        liquidHeights[index] = height;
+        lowestReadBlocks[index] = Math.min(lowestReadBlocks[index], y);
+        return height;
+    }
+
+    /**
+     * Must be called when a block is placed. Forgets the cached heights of
+     * the column if the block could change them.
+     * @param x X position of the block.
+     * @param y Y position of the block.
+     * @param z Z position of the block.
+     */
+    public void onBlockSet(int x, int y, int z)
+    {
+        if (!contains(x, z))
+        {
+            return;
+        }
+        int index = getIndex(x, z);
+        if (y >= lowestReadBlocks[index])
+        {
+            highestBlocks[index] = UNKNOWN;
+            solidHeights[index] = UNKNOWN;
+            liquidHeights[index] = UNKNOWN;
+            lowestReadBlocks[index] = Integer.MAX_VALUE;
+        }
+    }
+}
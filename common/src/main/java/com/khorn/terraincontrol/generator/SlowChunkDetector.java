@@ -0,0 +1,210 @@
+package com.khorn.terraincontrol.generator;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.logging.LogMarker;
+import com.khorn.terraincontrol.logging.SlowChunkLog;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Measures how long the generation or population of a chunk takes. When
+ * it takes longer than the SlowChunkThreshold in the plugin config, a record
+ * is written to the {@link SlowChunkLog} with the time spent in each stage
+ * and the slowest resources, so that the cause can be found in the preset.
+ *
+ * <p>Usage: call {@link #startChunk(ChunkCoordinate)}, then
+ * {@link #startStage(String)} for every stage and
+ * {@link #startEntry()}/{@link #endEntry(Object, long)} around every
+ * resource, and finally {@link #endChunk(String, int)}. When the detector
+ * is disabled, all methods return immediately.
+ *
+ * <p>Instances are not thread safe, every generator needs its own.
+ */
+public final class SlowChunkDetector
+{
+    private static final int SLOWEST_ENTRIES = 5;
+
+    private final LocalWorld world;
+    private final String phase;
+
+    private boolean active;
+    private ChunkCoordinate chunkCoord;
+    private long chunkStart;
+    private String stage;
+    private long stageStart;
+    private final Map<String, Long> stageTimes = new LinkedHashMap<String, Long>();
+    private final Map<Object, Long> entryTimes = new IdentityHashMap<Object, Long>();
+
+    /**
+     * Creates a new detector.
+     * @param world The world.
+     * @param phase Name of what is measured, like "population".
+     */
+    public SlowChunkDetector(LocalWorld world, String phase)
+    {
+        this.world = world;
+        this.phase = phase;
+    }
+
+    /**
+     * Starts measuring a chunk.
+     * @param chunkCoord The chunk.
+     */
+    public void startChunk(ChunkCoordinate chunkCoord)
+    {
+        this.active = TerrainControl.getPluginConfig().SlowChunkThreshold > 0;
+        if (!this.active)
+        {
+            return;
+        }
+        this.chunkCoord = chunkCoord;
+        this.stage = null;
+        this.stageTimes.clear();
+        this.entryTimes.clear();
+        this.chunkStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the previous stage, and starts a new stage.
+     * @param name Name of the new stage.
+     */
+    public void startStage(String name)
+    {
+        if (!this.active)
+        {
+            return;
+        }
+        long now = System.nanoTime();
+        endStage(now);
+        this.stage = name;
+        this.stageStart = now;
+    }
+
+    private void endStage(long now)
+    {
+        if (this.stage != null)
+        {
+            Long previous = this.stageTimes.get(this.stage);
+            this.stageTimes.put(this.stage, (previous == null ? 0 : previous) + now - this.stageStart);
+            this.stage = null;
+        }
+    }
+
+    /**
+     * Gets the start time of a resource or object.
+     * @return The start time, to pass to {@link #endEntry(Object, long)}.
+     */
+    public long startEntry()
+    {
+        return this.active ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time spent on a resource or object.
+     * @param entry     The resource or object. {@code toString()} is used
+     *                  as its name, but only when the chunk turns out to be
+     *                  slow.
+     * @param startTime The value returned by {@link #startEntry()}.
+     */
+    public void endEntry(Object entry, long startTime)
+    {
+        if (!this.active)
+        {
+            return;
+        }
+        long time = System.nanoTime() - startTime;
+        Long previous = this.entryTimes.get(entry);
+        this.entryTimes.put(entry, previous == null ? time : previous + time);
+    }
+
+    /**
+     * Stops measuring the chunk, and writes a record if the chunk was slow.
+     * @param biomeName    Name of the biome of the chunk.
+     * @param blocksPlaced Number of blocks placed, or -1 if unknown.
+     */
+    public void endChunk(String biomeName, int blocksPlaced)
+    {
+        if (!this.active)
+        {
+            return;
+        }
+        this.active = false;
+        long now = System.nanoTime();
+        endStage(now);
+
+        long total = now - this.chunkStart;
+        int threshold = TerrainControl.getPluginConfig().SlowChunkThreshold;
+        if (total < threshold * 1000000L)
+        {
+            return;
+        }
+
+        String record = createRecord(biomeName, blocksPlaced, total);
+        SlowChunkLog.write(record);
+        TerrainControl.log(LogMarker.WARN, "Slow {} of chunk {} in world {} ({} ms, biome {}), see SlowChunks.log for details",
+                this.phase, this.chunkCoord, this.world.getName(), total / 1000000, biomeName);
+    }
+
+    private String createRecord(String biomeName, int blocksPlaced, long total)
+    {
+        StringBuilder record = new StringBuilder();
+        record.append("{\"time\":").append(SlowChunkLog.quote(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date())));
+        record.append(",\"world\":").append(SlowChunkLog.quote(this.world.getName()));
+        record.append(",\"phase\":").append(SlowChunkLog.quote(this.phase));
+        record.append(",\"chunkX\":").append(this.chunkCoord.getChunkX());
+        record.append(",\"chunkZ\":").append(this.chunkCoord.getChunkZ());
+        record.append(",\"biome\":").append(SlowChunkLog.quote(biomeName));
+        record.append(",\"totalMs\":").append(toMillis(total));
+        if (blocksPlaced >= 0)
+        {
+            record.append(",\"blocksPlaced\":").append(blocksPlaced);
+        }
+
+        record.append(",\"stagesMs\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> stageTime : this.stageTimes.entrySet())
+        {
+            if (!first)
+            {
+                record.append(',');
+            }
+            first = false;
+            record.append(SlowChunkLog.quote(stageTime.getKey())).append(':').append(toMillis(stageTime.getValue()));
+        }
+        record.append('}');
+
+        List<Map.Entry<Object, Long>> entries = new ArrayList<Map.Entry<Object, Long>>(this.entryTimes.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Object, Long>>()
+        {
+            @Override
+            public int compare(Map.Entry<Object, Long> a, Map.Entry<Object, Long> b)
+            {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+        record.append(",\"slowest\":[");
+        for (int i = 0; i < entries.size() && i < SLOWEST_ENTRIES; i++)
+        {
+            if (i != 0)
+            {
+                record.append(',');
+            }
+            Map.Entry<Object, Long> entry = entries.get(i);
+            record.append("{\"name\":").append(SlowChunkLog.quote(String.valueOf(entry.getKey())));
+            record.append(",\"ms\":").append(toMillis(entry.getValue())).append('}');
+        }
+        record.append("]}");
+
+        this.stageTimes.clear();
+        this.entryTimes.clear();
+        return record.toString();
+    }
+
+    private static String toMillis(long nanos)
+    {
+        return String.valueOf(nanos / 1000 / 1000.0);
+    }
+}
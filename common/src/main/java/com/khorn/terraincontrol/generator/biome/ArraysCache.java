@@ -14,6 +14,16 @@ public class ArraysCache
 
     public OutputType outputType = OutputType.FULL;
 
+    /**
+     * Random state of the layer that is currently generating. Stored here
+     * instead of in the layers themselves, so that the layers can be used by
+     * multiple threads at the same time, each with their own cache.
+     * @see com.khorn.terraincontrol.generator.biome.layers.Layer
+     */
+    public long scrambledLayerWorldSeed;
+    public long scrambledChunkSeed;
+    public long scrambledGroupSeed;
+
     public ArraysCache()
     {
 
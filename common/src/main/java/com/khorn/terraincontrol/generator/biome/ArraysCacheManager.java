@@ -1,14 +1,18 @@
 package com.khorn.terraincontrol.generator.biome;
 
+import java.util.ArrayList;
+
 public class ArraysCacheManager
 {
 
-    private static final ArraysCache[] ARRAYS_CACHES = new ArraysCache[4];
+    // Starts with four caches, more are added when more threads generate
+    // biomes at the same time (for example the BiomeMapExporter workers)
+    private static final ArrayList<ArraysCache> ARRAYS_CACHES = new ArrayList<ArraysCache>();
 
     static
     {
-        for (int i = 0; i < ARRAYS_CACHES.length; i++)
-            ARRAYS_CACHES[i] = new ArraysCache();
+        for (int i = 0; i < 4; i++)
+            ARRAYS_CACHES.add(new ArraysCache());
 
     }
 
@@ -25,8 +29,11 @@ public class ArraysCacheManager
                 }
             }
 
+            ArraysCache arraysCache = new ArraysCache();
+            arraysCache.isFree = false;
+            ARRAYS_CACHES.add(arraysCache);
+            return arraysCache;
         }
-        return null; // Exception ??
     }
 
     public static void ReleaseCache(ArraysCache cache)
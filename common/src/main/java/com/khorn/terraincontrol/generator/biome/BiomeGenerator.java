@@ -114,6 +114,15 @@ public abstract class BiomeGenerator
         return false;
     }
 
+    /**
+     * Gets the amount of chunks whose biomes are cached by this generator.
+     * @return The amount of chunks, 0 if {@link #isCached()} == false.
+     */
+    public int getCachedChunkCount()
+    {
+        return 0;
+    }
+
     /**
      * Gets whether this biome generator is cached. Cached biome generators
      * have an implementation for {@link #getBiome(int, int)} and {@link #cleanupCache()}.
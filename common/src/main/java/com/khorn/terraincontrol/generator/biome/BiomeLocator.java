@@ -0,0 +1,403 @@
+package com.khorn.terraincontrol.generator.biome;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.logging.LogMarker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the nearest position of a biome, without generating any chunks.
+ *
+ * <p>The search goes outwards in square rings of tiles. Each tile is
+ * {@value #TILE_CELLS}x{@value #TILE_CELLS} unzoomed cells (one cell covers
+ * 4x4 blocks) and is generated on a pool of worker threads, each with its
+ * own instance of the biome generator. Cells with the biome are then checked
+ * at full resolution, closest first, as the last zoom layer may move the
+ * borders of a biome by a few blocks.
+ *
+ * <p>Like the {@link BiomeMapExporter}, this only works for biome modes that
+ * are based on layers. Use {@link #canLocate(LocalWorld)} to check this.
+ */
+public class BiomeLocator
+{
+    /**
+     * Receives the progress of a search. Methods are called from the search
+     * thread, not from the server thread.
+     */
+    public interface Listener
+    {
+        /**
+         * Called every few seconds while the search is running.
+         * @param radius     The radius that has been searched, in blocks.
+         * @param percentage The progress, from 0 to 100.
+         */
+        void onProgress(int radius, int percentage);
+
+        /**
+         * Called when the biome was found. No further methods will be
+         * called.
+         * @param x          X position of the biome.
+         * @param z          Z position of the biome.
+         * @param distance   Distance to the center of the search, in blocks.
+         * @param timeMillis How long the search took.
+         */
+        void onFound(int x, int z, int distance, long timeMillis);
+
+        /**
+         * Called when the biome was not found within the maximum radius. No
+         * further methods will be called.
+         * @param radius The radius that was searched, in blocks.
+         */
+        void onNotFound(int radius);
+
+        /**
+         * Called when the search was cancelled using {@link #cancel()}. No
+         * further methods will be called.
+         */
+        void onCancelled();
+
+        /**
+         * Called when the search failed. No further methods will be called.
+         * @param e The cause.
+         */
+        void onFailed(Exception e);
+    }
+
+    private static final int CELL_SIZE = 4;
+    private static final int TILE_CELLS = 64;
+    private static final int TILE_BLOCKS = TILE_CELLS * CELL_SIZE;
+    private static final long PROGRESS_INTERVAL = 2000L;
+
+    /**
+     * Area around a matching cell that is checked at full resolution. The
+     * zoom layer moves borders by at most a few blocks.
+     */
+    private static final int REFINE_MARGIN = CELL_SIZE;
+
+    private static final AtomicReference<BiomeLocator> running = new AtomicReference<BiomeLocator>();
+
+    private final LocalWorld world;
+    private final Class<? extends BiomeGenerator> biomeModeClass;
+    private final int biomeId;
+    private final int centerX;
+    private final int centerZ;
+    private final int maxRadius;
+    private final int threads;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new search.
+     * @param world     The world to search in.
+     * @param biomeId   Generation id of the biome.
+     * @param centerX   X position to search around.
+     * @param centerZ   Z position to search around.
+     * @param maxRadius Maximum distance to search, in blocks.
+     * @param threads   Number of worker threads.
+     * @throws IllegalArgumentException If {@link #canLocate(LocalWorld)} is
+     *                                  false for the world.
+     */
+    public BiomeLocator(LocalWorld world, int biomeId, int centerX, int centerZ, int maxRadius, int threads)
+    {
+        if (!canLocate(world))
+        {
+            throw new IllegalArgumentException("World " + world.getName() + " does not use a layered biome mode");
+        }
+
+        this.world = world;
+        this.biomeModeClass = world.getBiomeGenerator().unwrap().getClass();
+        this.biomeId = biomeId;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.maxRadius = maxRadius;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Gets whether biomes can be located in the given world.
+     * @param world The world.
+     * @return True if the world uses a layered biome mode.
+     */
+    public static boolean canLocate(LocalWorld world)
+    {
+        return BiomeMapExporter.canExport(world);
+    }
+
+    /**
+     * Cancels the search that is currently running, if any.
+     * @return True if a search was cancelled, false if no search was
+     *         running.
+     */
+    public static boolean cancelRunning()
+    {
+        BiomeLocator locator = running.get();
+        if (locator == null)
+        {
+            return false;
+        }
+        locator.cancel();
+        return true;
+    }
+
+    /**
+     * Cancels this search. The listener will be notified once the search
+     * has stopped.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    /**
+     * Starts the search on a new thread.
+     * @param listener Receives the progress of the search.
+     * @return False if another search is already running, true otherwise.
+     */
+    public boolean start(final Listener listener)
+    {
+        if (!running.compareAndSet(null, this))
+        {
+            return false;
+        }
+
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    search(listener);
+                } catch (Exception e)
+                {
+                    TerrainControl.log(LogMarker.ERROR, "Failed to locate biome in world {}", world.getName());
+                    TerrainControl.printStackTrace(LogMarker.ERROR, e);
+                    listener.onFailed(e);
+                } finally
+                {
+                    running.set(null);
+                }
+            }
+        }, "OTG biome locator");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void search(Listener listener) throws InterruptedException, ExecutionException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int count = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "OTG biome locator worker " + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Each worker gets its own biome generator, as layers are not thread safe
+        final ThreadLocal<BiomeGenerator> generators = new ThreadLocal<BiomeGenerator>()
+        {
+            @Override
+            protected BiomeGenerator initialValue()
+            {
+                return TerrainControl.getBiomeModeManager().create(biomeModeClass, world);
+            }
+        };
+
+        try
+        {
+            long startTime = System.currentTimeMillis();
+            long lastProgressTime = startTime;
+            BiomeGenerator refineGenerator = TerrainControl.getBiomeModeManager().create(biomeModeClass, world);
+
+            int centerTileX = (int) Math.floor(centerX / (double) TILE_BLOCKS);
+            int centerTileZ = (int) Math.floor(centerZ / (double) TILE_BLOCKS);
+            int maxRing = (maxRadius + TILE_BLOCKS - 1) / TILE_BLOCKS;
+
+            int[] best = null;
+            long bestDistanceSquared = Long.MAX_VALUE;
+            for (int ring = 0; ring <= maxRing; ring++)
+            {
+                // All tiles of this ring are at least this far away
+                long minRingDistance = (long) (ring - 1) * TILE_BLOCKS;
+                if (best != null && minRingDistance > 0 && minRingDistance * minRingDistance > bestDistanceSquared)
+                {
+                    break;
+                }
+                if (cancelled)
+                {
+                    listener.onCancelled();
+                    return;
+                }
+
+                List<int[]> candidates = new ArrayList<int[]>();
+                for (Future<List<int[]>> tile : submitRing(executor, generators, centerTileX, centerTileZ, ring))
+                {
+                    candidates.addAll(tile.get());
+                }
+
+                // Check the matching cells at full resolution, closest first
+                Collections.sort(candidates, new Comparator<int[]>()
+                {
+                    @Override
+                    public int compare(int[] a, int[] b)
+                    {
+                        long distanceA = distanceSquared(a[0] * CELL_SIZE, a[1] * CELL_SIZE);
+                        long distanceB = distanceSquared(b[0] * CELL_SIZE, b[1] * CELL_SIZE);
+                        return distanceA < distanceB ? -1 : (distanceA == distanceB ? 0 : 1);
+                    }
+                });
+                for (int[] cell : candidates)
+                {
+                    if (cancelled)
+                    {
+                        listener.onCancelled();
+                        return;
+                    }
+                    if (best != null)
+                    {
+                        // Stop once no position in this cell can be closer
+                        double cellDistance = Math.sqrt(distanceSquared(cell[0] * CELL_SIZE, cell[1] * CELL_SIZE)) - 2 * REFINE_MARGIN;
+                        if (cellDistance > 0 && cellDistance * cellDistance > bestDistanceSquared)
+                        {
+                            break;
+                        }
+                    }
+                    int[] position = refine(refineGenerator, cell[0], cell[1]);
+                    if (position != null)
+                    {
+                        long distanceSquared = distanceSquared(position[0], position[1]);
+                        if (distanceSquared < bestDistanceSquared)
+                        {
+                            best = position;
+                            bestDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+
+                long time = System.currentTimeMillis();
+                if (best == null && time > lastProgressTime + PROGRESS_INTERVAL)
+                {
+                    // The searched area grows with the square of the radius
+                    listener.onProgress(ring * TILE_BLOCKS, (int) ((long) (ring + 1) * (ring + 1) * 100 / ((long) (maxRing + 1) * (maxRing + 1))));
+                    lastProgressTime = time;
+                }
+            }
+
+            if (best == null)
+            {
+                listener.onNotFound(maxRing * TILE_BLOCKS);
+            } else
+            {
+                listener.onFound(best[0], best[1], (int) Math.sqrt(bestDistanceSquared), System.currentTimeMillis() - startTime);
+            }
+        } finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private long distanceSquared(int x, int z)
+    {
+        long dx = x - centerX;
+        long dz = z - centerZ;
+        return dx * dx + dz * dz;
+    }
+
+    private List<Future<List<int[]>>> submitRing(ExecutorService executor, final ThreadLocal<BiomeGenerator> generators, int centerTileX,
+            int centerTileZ, int ring)
+    {
+        List<Future<List<int[]>>> tiles = new ArrayList<Future<List<int[]>>>();
+        for (int tileX = centerTileX - ring; tileX <= centerTileX + ring; tileX++)
+        {
+            for (int tileZ = centerTileZ - ring; tileZ <= centerTileZ + ring; tileZ++)
+            {
+                if (Math.abs(tileX - centerTileX) != ring && Math.abs(tileZ - centerTileZ) != ring)
+                {
+                    // Inside the ring, already searched
+                    continue;
+                }
+                final int startCellX = tileX * TILE_CELLS;
+                final int startCellZ = tileZ * TILE_CELLS;
+                tiles.add(executor.submit(new Callable<List<int[]>>()
+                {
+                    @Override
+                    public List<int[]> call()
+                    {
+                        return searchTile(generators.get(), startCellX, startCellZ);
+                    }
+                }));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Searches a tile at the unzoomed resolution.
+     * @return The cells that have the biome.
+     */
+    private List<int[]> searchTile(BiomeGenerator generator, int startCellX, int startCellZ)
+    {
+        List<int[]> cells = new ArrayList<int[]>();
+        if (cancelled)
+        {
+            return cells;
+        }
+        int[] biomes = generator.getBiomesUnZoomed(null, startCellX, startCellZ, TILE_CELLS, TILE_CELLS, OutputType.DEFAULT_FOR_WORLD);
+        for (int i = 0; i < TILE_CELLS * TILE_CELLS; i++)
+        {
+            if (biomes[i] == biomeId)
+            {
+                cells.add(new int[] {startCellX + i % TILE_CELLS, startCellZ + i / TILE_CELLS});
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Finds the block with the biome closest to the center, in the area
+     * around the given cell.
+     * @return The block x and z, or null if the biome is not there at full
+     *         resolution.
+     */
+    private int[] refine(BiomeGenerator generator, int cellX, int cellZ)
+    {
+        int startX = cellX * CELL_SIZE - REFINE_MARGIN;
+        int startZ = cellZ * CELL_SIZE - REFINE_MARGIN;
+        int size = CELL_SIZE + 2 * REFINE_MARGIN;
+        int[] biomes = generator.getBiomes(null, startX, startZ, size, size, OutputType.DEFAULT_FOR_WORLD);
+
+        int[] best = null;
+        long bestDistanceSquared = Long.MAX_VALUE;
+        for (int i = 0; i < size * size; i++)
+        {
+            if (biomes[i] == biomeId)
+            {
+                int x = startX + i % size;
+                int z = startZ + i / size;
+                long distanceSquared = distanceSquared(x, z);
+                if (distanceSquared < bestDistanceSquared)
+                {
+                    best = new int[] {x, z};
+                    bestDistanceSquared = distanceSquared;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,422 @@
+package com.khorn.terraincontrol.generator.biome;
+
+import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.configuration.BiomeConfig;
+import com.khorn.terraincontrol.logging.LogMarker;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.PngWriter;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports a biome map and a temperature map of a world to PNG files.
+ *
+ * <p>Biomes are read directly from the biome generator of the world, in tiles
+ * of {@value #TILE_SIZE}x{@value #TILE_SIZE} blocks that are generated on a
+ * pool of worker threads. Each worker uses its own instance of the biome
+ * generator, so the generator of the world itself is never touched. The
+ * images are written one band of tiles at a time, so memory usage depends on
+ * the width of the map, not on its area.
+ *
+ * <p>Only biome modes that are based on layers can be exported, as those can
+ * be instantiated without any help from Minecraft. Use
+ * {@link #canExport(LocalWorld)} to check this.
+ */
+public class BiomeMapExporter
+{
+    /**
+     * Receives progress updates of an export. Methods are called from the
+     * export thread, not from the server thread.
+     */
+    public interface Listener
+    {
+        /**
+         * Called every few seconds while the export is running.
+         * @param percentage The progress, from 0 to 100.
+         */
+        void onProgress(int percentage);
+
+        /**
+         * Called once both images have been written.
+         * @param timeMillis How long the export took.
+         */
+        void onFinished(long timeMillis);
+
+        /**
+         * Called when the export failed. No further methods will be called.
+         * @param e The cause.
+         */
+        void onFailed(Exception e);
+    }
+
+    public enum Angle
+    {
+        d0,
+        d90,
+        d180,
+        d270
+    }
+
+    private static final int TILE_SIZE = 256;
+    private static final long PROGRESS_INTERVAL = 2000L;
+
+    private static final AtomicBoolean isWorking = new AtomicBoolean(false);
+
+    private final LocalWorld world;
+    private final Class<? extends BiomeGenerator> biomeModeClass;
+    private final int sizeInBlocks;
+    private final Angle angle;
+    private final int startX;
+    private final int startZ;
+    private final File biomeFile;
+    private final File temperatureFile;
+    private final int threads;
+
+    private final int[] biomeColors;
+    private final int[] temperatureColors;
+
+    /**
+     * Creates a new exporter. The map is centered around the given offset,
+     * just like the old map command did.
+     * @param world           The world to export.
+     * @param sizeInChunks    Width and height of the map in chunks.
+     * @param angle           Rotation of the map.
+     * @param offsetX         X center of the map in blocks.
+     * @param offsetZ         Z center of the map in blocks.
+     * @param biomeFile       File to write the biome colors to.
+     * @param temperatureFile File to write the temperatures to.
+     * @param threads         Number of worker threads.
+     * @throws IllegalArgumentException If {@link #canExport(LocalWorld)} is
+     *                                  false for the world.
+     */
+    public BiomeMapExporter(LocalWorld world, int sizeInChunks, Angle angle, int offsetX, int offsetZ, File biomeFile, File temperatureFile, int threads)
+    {
+        if (!canExport(world))
+        {
+            throw new IllegalArgumentException("World " + world.getName() + " does not use a layered biome mode");
+        }
+
+        this.world = world;
+        this.biomeModeClass = world.getBiomeGenerator().unwrap().getClass();
+        this.sizeInBlocks = sizeInChunks * ChunkCoordinate.CHUNK_X_SIZE;
+        this.angle = angle;
+        this.startX = offsetX - (sizeInChunks / 2) * ChunkCoordinate.CHUNK_X_SIZE;
+        this.startZ = offsetZ - (sizeInChunks / 2) * ChunkCoordinate.CHUNK_Z_SIZE;
+        this.biomeFile = biomeFile;
+        this.temperatureFile = temperatureFile;
+        this.threads = Math.max(1, threads);
+
+        LocalBiome[] biomes = world.getConfigs().getBiomeArray();
+        int maxId = 0;
+        for (LocalBiome biome : biomes)
+        {
+            if (biome != null)
+            {
+                maxId = Math.max(maxId, biome.getIds().getGenerationId());
+            }
+        }
+        this.biomeColors = new int[maxId + 1];
+        this.temperatureColors = new int[maxId + 1];
+        for (LocalBiome biome : biomes)
+        {
+            if (biome != null)
+            {
+                BiomeConfig biomeConfig = biome.getBiomeConfig();
+                int id = biome.getIds().getGenerationId();
+                this.biomeColors[id] = biomeConfig.biomeColor;
+                this.temperatureColors[id] = getTemperatureColor(biomeConfig.biomeTemperature);
+            }
+        }
+    }
+
+    /**
+     * Gets whether the biomes of the given world can be exported.
+     * @param world The world.
+     * @return True if the world uses a layered biome mode.
+     */
+    public static boolean canExport(LocalWorld world)
+    {
+        return world.getBiomeGenerator() != null && world.getBiomeGenerator().unwrap() instanceof LayeredBiomeGenerator;
+    }
+
+    /**
+     * Gets whether an export is currently running. Only one export can run
+     * at a time.
+     * @return True if an export is running.
+     */
+    public static boolean isWorking()
+    {
+        return isWorking.get();
+    }
+
+    /**
+     * Starts the export on a new thread.
+     * @param listener Receives the progress of the export.
+     * @return False if another export is already running, true otherwise.
+     */
+    public boolean start(final Listener listener)
+    {
+        if (!isWorking.compareAndSet(false, true))
+        {
+            return false;
+        }
+
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    long startTime = System.currentTimeMillis();
+                    export(listener);
+                    listener.onFinished(System.currentTimeMillis() - startTime);
+                } catch (Exception e)
+                {
+                    TerrainControl.log(LogMarker.ERROR, "Failed to export map of world {}", world.getName());
+                    TerrainControl.printStackTrace(LogMarker.ERROR, e);
+                    listener.onFailed(e);
+                } finally
+                {
+                    isWorking.set(false);
+                }
+            }
+        }, "OTG map export");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void export(Listener listener) throws IOException, InterruptedException, ExecutionException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int count = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "OTG map export worker " + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Each worker gets its own biome generator, as layers are not thread safe
+        final ThreadLocal<BiomeGenerator> generators = new ThreadLocal<BiomeGenerator>()
+        {
+            @Override
+            protected BiomeGenerator initialValue()
+            {
+                return TerrainControl.getBiomeModeManager().create(biomeModeClass, world);
+            }
+        };
+
+        PngWriter biomeWriter = null;
+        PngWriter temperatureWriter = null;
+        try
+        {
+            biomeWriter = new PngWriter(biomeFile, sizeInBlocks, sizeInBlocks);
+            temperatureWriter = new PngWriter(temperatureFile, sizeInBlocks, sizeInBlocks);
+
+            int bands = (sizeInBlocks + TILE_SIZE - 1) / TILE_SIZE;
+            int[] biomeRow = new int[sizeInBlocks];
+            int[] temperatureRow = new int[sizeInBlocks];
+            long lastProgressTime = System.currentTimeMillis();
+
+            // The next band is always being generated while the current band
+            // is written, so at most two bands are in memory
+            List<Future<int[]>> nextBand = submitBand(executor, generators, 0);
+            for (int band = 0; band < bands; band++)
+            {
+                List<Future<int[]>> currentBand = nextBand;
+                if (band + 1 < bands)
+                {
+                    nextBand = submitBand(executor, generators, band + 1);
+                }
+
+                int[][] tiles = new int[currentBand.size()][];
+                for (int i = 0; i < tiles.length; i++)
+                {
+                    tiles[i] = currentBand.get(i).get();
+                }
+
+                int bandHeight = Math.min(TILE_SIZE, sizeInBlocks - band * TILE_SIZE);
+                for (int rowInBand = 0; rowInBand < bandHeight; rowInBand++)
+                {
+                    for (int tile = 0; tile < tiles.length; tile++)
+                    {
+                        int tileWidth = Math.min(TILE_SIZE, sizeInBlocks - tile * TILE_SIZE);
+                        int[] biomeIds = tiles[tile];
+                        for (int i = 0; i < tileWidth; i++)
+                        {
+                            int biomeId = biomeIds[rowInBand * tileWidth + i];
+                            int imageX = tile * TILE_SIZE + i;
+                            if (biomeId >= 0 && biomeId < biomeColors.length)
+                            {
+                                biomeRow[imageX] = biomeColors[biomeId];
+                                temperatureRow[imageX] = temperatureColors[biomeId];
+                            } else
+                            {
+                                biomeRow[imageX] = 0;
+                                temperatureRow[imageX] = 0;
+                            }
+                        }
+                    }
+                    biomeWriter.writeRow(biomeRow, 0);
+                    temperatureWriter.writeRow(temperatureRow, 0);
+                }
+
+                long time = System.currentTimeMillis();
+                if (time > lastProgressTime + PROGRESS_INTERVAL)
+                {
+                    listener.onProgress((band + 1) * 100 / bands);
+                    lastProgressTime = time;
+                }
+            }
+
+            biomeWriter.close();
+            biomeWriter = null;
+            temperatureWriter.close();
+            temperatureWriter = null;
+        } finally
+        {
+            executor.shutdownNow();
+            // Only still open if the export failed
+            closeQuietly(biomeWriter);
+            closeQuietly(temperatureWriter);
+        }
+    }
+
+    private static void closeQuietly(PngWriter writer)
+    {
+        if (writer != null)
+        {
+            try
+            {
+                writer.close();
+            } catch (IOException e)
+            {
+                // Incomplete image, already failing
+            }
+        }
+    }
+
+    private List<Future<int[]>> submitBand(ExecutorService executor, final ThreadLocal<BiomeGenerator> generators, int band)
+    {
+        List<Future<int[]>> tiles = new ArrayList<Future<int[]>>();
+        final int imageY = band * TILE_SIZE;
+        final int tileHeight = Math.min(TILE_SIZE, sizeInBlocks - imageY);
+        for (int imageX = 0; imageX < sizeInBlocks; imageX += TILE_SIZE)
+        {
+            final int tileX = imageX;
+            final int tileWidth = Math.min(TILE_SIZE, sizeInBlocks - imageX);
+            tiles.add(executor.submit(new Callable<int[]>()
+            {
+                @Override
+                public int[] call()
+                {
+                    return generateTile(generators.get(), tileX, imageY, tileWidth, tileHeight);
+                }
+            }));
+        }
+        return tiles;
+    }
+
+    /**
+     * Generates the biome ids of a rectangle of the image.
+     * @return The biome ids, row by row.
+     */
+    private int[] generateTile(BiomeGenerator generator, int imageX, int imageY, int width, int height)
+    {
+        // Find the area of the world that is shown in this part of the image
+        int x1 = getBlockX(imageX, imageY);
+        int z1 = getBlockZ(imageX, imageY);
+        int x2 = getBlockX(imageX + width - 1, imageY + height - 1);
+        int z2 = getBlockZ(imageX + width - 1, imageY + height - 1);
+        int minX = Math.min(x1, x2);
+        int minZ = Math.min(z1, z2);
+        int xSize = Math.abs(x2 - x1) + 1;
+        int zSize = Math.abs(z2 - z1) + 1;
+
+        int[] biomes = generator.getBiomes(null, startX + minX, startZ + minZ, xSize, zSize, OutputType.DEFAULT_FOR_WORLD);
+
+        int[] tile = new int[width * height];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                int blockX = getBlockX(imageX + x, imageY + y) - minX;
+                int blockZ = getBlockZ(imageX + x, imageY + y) - minZ;
+                tile[y * width + x] = biomes[blockX + blockZ * xSize];
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Gets the x position, relative to the start of the map, shown at the
+     * given pixel.
+     */
+    private int getBlockX(int imageX, int imageY)
+    {
+        switch (angle)
+        {
+            case d90:
+                return imageY;
+            case d180:
+                return sizeInBlocks - 1 - imageX;
+            case d270:
+                return sizeInBlocks - 1 - imageY;
+            default:
+                return imageX;
+        }
+    }
+
+    /**
+     * Gets the z position, relative to the start of the map, shown at the
+     * given pixel.
+     */
+    private int getBlockZ(int imageX, int imageY)
+    {
+        switch (angle)
+        {
+            case d90:
+                return sizeInBlocks - 1 - imageX;
+            case d180:
+                return sizeInBlocks - 1 - imageY;
+            case d270:
+                return imageX;
+            default:
+                return imageY;
+        }
+    }
+
+    /**
+     * Gets the temperature color of a biome. Starts at blue, goes to green,
+     * red and darker red for increasing temperatures.
+     * @param temperature The temperature of the biome.
+     * @return The color, as 0xRRGGBB.
+     */
+    private static int getTemperatureColor(float temperature)
+    {
+        // Prevents us from going around the color wheel twice or getting into
+        // the purple colors
+        float cappedTemperature = Math.min(1.0f, temperature);
+
+        return Color.HSBtoRGB(0.7f - cappedTemperature * 0.7f, 0.9f, temperature * 0.7f + 0.3f) & 0xFFFFFF;
+    }
+}
@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.generator.biome;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 
 import java.util.HashMap;
@@ -112,6 +113,12 @@ class CachedBiomeGenerator extends BiomeGenerator
 
     }
 
+    @Override
+    public int getCachedChunkCount()
+    {
+        return this.cacheMap.size();
+    }
+
     @Override
     public int getBiome(int x, int z)
     {
@@ -131,7 +138,12 @@ class CachedBiomeGenerator extends BiomeGenerator
 
         if (block == null)
         {
+            Object event = FlightRecorderEvent.BIOME_CACHE_MISS.begin();
             block = new CachedBiomeGenerator.Block(generator, chunkCoord);
+            if (event != null)
+            {
+                FlightRecorderEvent.BIOME_CACHE_MISS.commit(event, world.getName(), chunkCoord.getChunkX(), chunkCoord.getChunkZ());
+            }
             this.cacheMap.put(chunkCoord, block);
         }
 
@@ -49,9 +49,10 @@ public abstract class LayeredBiomeGenerator extends BiomeGenerator
         else
             cache.outputType = outputType;
         int[] arrayOfInt = this.unZoomedLayer.getInts(cache, x, z, x_size, z_size);
-        ArraysCacheManager.ReleaseCache(cache);
-
+        // The array belongs to the cache, so copy it before another thread
+        // can get the cache
         System.arraycopy(arrayOfInt, 0, biomeArray, 0, x_size * z_size);
+        ArraysCacheManager.ReleaseCache(cache);
 
         return biomeArray;
     }
@@ -70,9 +71,10 @@ public abstract class LayeredBiomeGenerator extends BiomeGenerator
         else
             cache.outputType = outputType;
         int[] arrayOfInt = this.biomeLayer.getInts(cache, x, z, x_size, z_size);
-        ArraysCacheManager.ReleaseCache(cache);
-
+        // The array belongs to the cache, so copy it before another thread
+        // can get the cache
         System.arraycopy(arrayOfInt, 0, biomeArray, 0, x_size * z_size);
+        ArraysCacheManager.ReleaseCache(cache);
 
         return biomeArray;
     }
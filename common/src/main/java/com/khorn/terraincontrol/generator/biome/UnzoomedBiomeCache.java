@@ -0,0 +1,142 @@
+package com.khorn.terraincontrol.generator.biome;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the unzoomed biomes (one cell for every 4x4 blocks) of recently
+ * checked areas, in tiles of 16x16 cells.
+ *
+ * <p>Minecraft checks the biomes around lots of candidate positions when
+ * placing villages, temples, monuments and strongholds. Those candidates
+ * are close to each other, so without this cache the same cells are
+ * generated over and over again.
+ *
+ * <p>This only works because the unzoomed biome of a cell only depends on
+ * the position of the cell, not on the area that is requested. The cache
+ * is thread safe.
+ */
+public final class UnzoomedBiomeCache
+{
+    private static final int TILE_BITS = 4;
+    private static final int TILE_SIZE = 1 << TILE_BITS;
+    private static final int MAX_TILES = 64;
+
+    private final BiomeGenerator biomeGenerator;
+    private final Map<Long, int[]> tiles = new LinkedHashMap<Long, int[]>(MAX_TILES, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest)
+        {
+            return size() > MAX_TILES;
+        }
+    };
+
+    /**
+     * Creates a new cache.
+     * @param biomeGenerator The biome generator.
+     */
+    public UnzoomedBiomeCache(BiomeGenerator biomeGenerator)
+    {
+        this.biomeGenerator = biomeGenerator;
+    }
+
+    /**
+     * Gets the amount of tiles that are currently cached. Each tile takes
+     * about 1 KB.
+     * @return The amount of tiles.
+     */
+    public int getTileCount()
+    {
+        synchronized (tiles)
+        {
+            return tiles.size();
+        }
+    }
+
+    /**
+     * Forgets all cached biomes. Must be called when the biomes of the world
+     * are reloaded.
+     */
+    public void clear()
+    {
+        synchronized (tiles)
+        {
+            tiles.clear();
+        }
+    }
+
+    /**
+     * Checks whether all cells in the given area have one of the allowed
+     * biomes. Stops at the first cell that has another biome.
+     * @param x          X of the first cell, in unzoomed coordinates.
+     * @param z          Z of the first cell, in unzoomed coordinates.
+     * @param xSize      Size of the area on the x axis.
+     * @param zSize      Size of the area on the z axis.
+     * @param allowedIds Bit set of allowed biome ids: biome id {@code i} is
+     *                   allowed if bit {@code i & 63} of
+     *                   {@code allowedIds[i >> 6]} is set.
+     * @return True if all biomes are allowed, false otherwise.
+     */
+    public boolean containsOnly(int x, int z, int xSize, int zSize, long[] allowedIds)
+    {
+        int maxTileX = (x + xSize - 1) >> TILE_BITS;
+        int maxTileZ = (z + zSize - 1) >> TILE_BITS;
+
+        for (int tileZ = z >> TILE_BITS; tileZ <= maxTileZ; tileZ++)
+        {
+            for (int tileX = x >> TILE_BITS; tileX <= maxTileX; tileX++)
+            {
+                int[] tile = getTile(tileX, tileZ);
+
+                // Check the part of the tile that overlaps the area
+                int tileStartX = tileX << TILE_BITS;
+                int tileStartZ = tileZ << TILE_BITS;
+                int startX = Math.max(x, tileStartX) - tileStartX;
+                int endX = Math.min(x + xSize, tileStartX + TILE_SIZE) - tileStartX;
+                int startZ = Math.max(z, tileStartZ) - tileStartZ;
+                int endZ = Math.min(z + zSize, tileStartZ + TILE_SIZE) - tileStartZ;
+                for (int zi = startZ; zi < endZ; zi++)
+                {
+                    for (int xi = startX; xi < endX; xi++)
+                    {
+                        int biomeId = tile[zi * TILE_SIZE + xi];
+                        if (biomeId < 0 || (biomeId >> 6) >= allowedIds.length
+                                || (allowedIds[biomeId >> 6] & (1L << biomeId)) == 0)
+                        {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private int[] getTile(int tileX, int tileZ)
+    {
+        Long key = Long.valueOf(((long) tileX << 32) | (tileZ & 0xFFFFFFFFL));
+        int[] tile;
+        synchronized (tiles)
+        {
+            tile = tiles.get(key);
+        }
+        if (tile != null)
+        {
+            return tile;
+        }
+
+        // Generated outside the lock, two threads generating the same tile
+        // will get the same result
+        tile = biomeGenerator.getBiomesUnZoomed(null, tileX << TILE_BITS, tileZ << TILE_BITS, TILE_SIZE, TILE_SIZE,
+                OutputType.DEFAULT_FOR_WORLD);
+
+        synchronized (tiles)
+        {
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+}
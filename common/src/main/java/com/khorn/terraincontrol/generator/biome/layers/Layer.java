@@ -44,25 +44,15 @@ public abstract class Layer
     protected long baseSeed;
 
     /**
-     * A general seed kept for use in world generation
+     * A general seed kept for use in world generation. Set once when the
+     * layers are created and never changed afterwards, so that the layers
+     * can be used by multiple threads at the same time. The random state
+     * of a single call to getInts() is stored in the {@link ArraysCache}.
      * @see #initWorldGenSeed(long)
+     * @see #initChunkSeed(ArraysCache, long, long)
      */
     protected long scrambledWorldSeed;
 
-    /**
-     * This seed is used for general random number generation within the Layers
-     * system. It is based off of both the scrambledWorldSeed and baseSeed.
-     * @see #initWorldGenSeed(long)
-     * @see #initChunkSeed(long, long)
-     */
-    private long scrambledChunkSeed;
-
-    /**
-     * This seed is used for generating random numbers for biome groups
-     * @see #initGroupSeed(long, long)
-     */
-    private long scrambledGroupSeed;
-
     /**
      * The layer to process before this one. getInts() should call
      * child.getInts() before doing any processing -- in most cases.
@@ -172,60 +162,105 @@ public abstract class Layer
         this.scrambledWorldSeed = getScrambledWorldSeed(this.baseSeed, worldSeed);
     }
 
-    protected void initChunkSeed(long x, long z)
+    /**
+     * Initializes the random number generator for the given location.
+     * @param cache The cache of the current call to getInts(), holds the
+     *              random state.
+     * @param x     X coordinate of the location.
+     * @param z     Z coordinate of the location.
+     * @see #nextInt(ArraysCache, int)
+     */
+    protected void initChunkSeed(ArraysCache cache, long x, long z)
+    {
+        initChunkSeed(cache, this.scrambledWorldSeed, x, z);
+    }
+
+    /**
+     * Initializes the random number generator for the given location, using
+     * another world seed than the world seed of this layer.
+     * @param cache              The cache of the current call to getInts(),
+     *                           holds the random state.
+     * @param scrambledWorldSeed The world seed, see
+     *                           {@link #getScrambledWorldSeed(long, long)}.
+     * @param x                  X coordinate of the location.
+     * @param z                  Z coordinate of the location.
+     * @see #nextInt(ArraysCache, int)
+     */
+    protected static void initChunkSeed(ArraysCache cache, long scrambledWorldSeed, long x, long z)
     {
-        this.scrambledChunkSeed = this.scrambledWorldSeed;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += x;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += z;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += x;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += z;
+        long scrambledChunkSeed = scrambledWorldSeed;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += x;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += z;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += x;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += z;
+        cache.scrambledLayerWorldSeed = scrambledWorldSeed;
+        cache.scrambledChunkSeed = scrambledChunkSeed;
     }
 
-    protected void initGroupSeed(long x, long z)
+    /**
+     * Initializes the random number generator for biome groups for the given
+     * location.
+     * @param cache The cache of the current call to getInts(), holds the
+     *              random state.
+     * @param x     X coordinate of the location.
+     * @param z     Z coordinate of the location.
+     * @see #nextGroupInt(ArraysCache, int)
+     */
+    protected static void initGroupSeed(ArraysCache cache, long x, long z)
     {
-        this.scrambledGroupSeed = this.scrambledChunkSeed;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += x;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += z;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += x;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += z;
+        // The group seed was meant to be based on the chunk seed, but the
+        // only layer using the group seed never initialized its chunk seed,
+        // so it has always started at zero. Keep it that way, otherwise
+        // existing worlds would get other biome groups.
+        long scrambledGroupSeed = 0;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += x;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += z;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += x;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += z;
+        cache.scrambledGroupSeed = scrambledGroupSeed;
     }
 
-    protected int nextInt(int x)
+    protected static int nextInt(ArraysCache cache, int x)
     {
-        int i = (int) ((this.scrambledChunkSeed >> 24) % x);
+        long scrambledChunkSeed = cache.scrambledChunkSeed;
+        int i = (int) ((scrambledChunkSeed >> 24) % x);
         if (i < 0)
             i += x;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += this.scrambledWorldSeed;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += cache.scrambledLayerWorldSeed;
+        cache.scrambledChunkSeed = scrambledChunkSeed;
         return i;
     }
 
-    protected int nextGroupInt(int x)
+    protected static int nextGroupInt(ArraysCache cache, int x)
     {
-        int i = (int) ((this.scrambledGroupSeed >> 24) % x);
+        long scrambledGroupSeed = cache.scrambledGroupSeed;
+        int i = (int) ((scrambledGroupSeed >> 24) % x);
         if (i < 0)
             i += x;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += this.scrambledChunkSeed;
+        // See initGroupSeed, the chunk seed that used to be added here was
+        // always zero
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        cache.scrambledGroupSeed = scrambledGroupSeed;
         return i;
     }
 
     public abstract int[] getInts(ArraysCache cache, int x, int z, int xSize, int zSize);
 
-    protected int getRandomInArray(int... biomes)
+    protected int getRandomInArray(ArraysCache cache, int... biomes)
     {
-        return biomes[this.nextInt(biomes.length)];
+        return biomes[nextInt(cache, biomes.length)];
     }
 
-    protected int getRandomOf4(int a, int b, int c, int d)
+    protected int getRandomOf4(ArraysCache cache, int a, int b, int c, int d)
     {
         return b == c && c == d
                ? b
@@ -247,7 +282,7 @@ public abstract class Layer
                                        ? b
                                        : (c == d && a != b
                                           ? c
-                                          : this.getRandomInArray(new int[]
+                                          : this.getRandomInArray(cache, new int[]
                                           {
                                               a, b, c, d
         }))))))))));
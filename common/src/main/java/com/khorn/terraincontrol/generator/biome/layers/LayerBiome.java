@@ -34,7 +34,7 @@ public class LayerBiome extends Layer
         {
             for (int j = 0; j < xSize; j++)
             {
-                initChunkSeed(j + x, i + z);
+                initChunkSeed(cache, j + x, i + z);
                 int currentPiece = childInts[(j + i * xSize)];
 
                 if ((currentPiece & BiomeGroupBits) != 0 && (currentPiece & BiomeBits) == 0)    // has biomegroup bits but not biome bits
@@ -44,7 +44,7 @@ public class LayerBiome extends Layer
                     //>>	Get Max Rarity
                     if (!possibleBiomes.isEmpty())
                     {
-                        int newBiomeRarity = nextInt(BiomeGroupManager.getMaxRarityFromPossibles(possibleBiomes));
+                        int newBiomeRarity = nextInt(cache, BiomeGroupManager.getMaxRarityFromPossibles(possibleBiomes));
                         //>>	Spawn the biome based on the rarity spectrum
                         for (Entry<Integer, LocalBiome> biome : possibleBiomes.entrySet())
                         {
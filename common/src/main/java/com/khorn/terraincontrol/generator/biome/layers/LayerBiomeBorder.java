@@ -8,29 +8,43 @@ import com.khorn.terraincontrol.generator.biome.ArraysCache;
 public class LayerBiomeBorder extends Layer
 {
 
-    private boolean[][] bordersFrom;
+    /**
+     * For every biome that gets a border, a bitset of the biome ids that
+     * the border may be placed next to. One bit per biome id.
+     */
+    private long[][] bordersFrom;
     private int[] bordersTo;
 
     public LayerBiomeBorder(long seed, LocalWorld world)
     {
         super(seed);
-        this.bordersFrom = new boolean[world.getMaxBiomesCount()][];
+        this.bordersFrom = new long[world.getMaxBiomesCount()][];
         this.bordersTo = new int[world.getMaxBiomesCount()];
     }
 
     public void addBiome(LocalBiome replaceTo, int replaceFrom, LocalWorld world)
     {
-        this.bordersFrom[replaceFrom] = new boolean[world.getMaxBiomesCount()];
+        int maxBiomesCount = world.getMaxBiomesCount();
+        long[] biomeFrom = new long[(maxBiomesCount + 63) >> 6];
 
-        for (int i = 0; i < this.bordersFrom[replaceFrom].length; i++)
+        for (int i = 0; i < maxBiomesCount; i++)
         {
         	// For forge make sure all dimensions are queried since the biome we're looking for may be owned by another dimension
         	LocalBiome biome = TerrainControl.isForge ? TerrainControl.getBiomeAllWorlds(i) : world.getBiomeByIdOrNull(i);            
-            this.bordersFrom[replaceFrom][i] = biome == null || !replaceTo.getBiomeConfig().notBorderNear.contains(biome.getName());
+            if (biome == null || !replaceTo.getBiomeConfig().notBorderNear.contains(biome.getName()))
+            {
+                biomeFrom[i >> 6] |= 1L << i;
+            }
         }
+        this.bordersFrom[replaceFrom] = biomeFrom;
         this.bordersTo[replaceFrom] = replaceTo.getIds().getGenerationId();
     }
 
+    private static boolean contains(long[] bitSet, int biomeId)
+    {
+        return (bitSet[biomeId >> 6] & (1L << biomeId)) != 0;
+    }
+
     @Override
     public int[] getInts(ArraysCache cache, int x, int z, int xSize, int zSize)
     {
@@ -41,7 +55,6 @@ public class LayerBiomeBorder extends Layer
         {
             for (int xi = 0; xi < xSize; xi++)
             {
-                initChunkSeed(xi + x, zi + z);
                 int selection = childInts[(xi + 1 + (zi + 1) * (xSize + 2))];
 
                 int biomeId = getBiomeFromLayer(selection);
@@ -52,8 +65,8 @@ public class LayerBiomeBorder extends Layer
                     int eastCheck = getBiomeFromLayer(childInts[(xi + 2 + (zi + 1) * (xSize + 2))]);
                     int westCheck = getBiomeFromLayer(childInts[(xi + (zi + 1) * (xSize + 2))]);
                     
-                    boolean[] biomeFrom = bordersFrom[biomeId];
-                    if (biomeFrom[northCheck] && biomeFrom[eastCheck] && biomeFrom[westCheck] && biomeFrom[southCheck])
+                    long[] biomeFrom = bordersFrom[biomeId];
+                    if (contains(biomeFrom, northCheck) && contains(biomeFrom, eastCheck) && contains(biomeFrom, westCheck) && contains(biomeFrom, southCheck))
                         if ((northCheck != biomeId) || (eastCheck != biomeId) || (westCheck != biomeId) || (southCheck != biomeId))
                             selection = (selection & (IslandBit | RiverBits | IceBit)) | LandBit | bordersTo[biomeId];
                 }
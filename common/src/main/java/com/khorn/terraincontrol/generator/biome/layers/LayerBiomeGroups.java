@@ -32,13 +32,13 @@ public class LayerBiomeGroups extends Layer
         {
             for (int j = 0; j < x_size; j++)
             {
-                initGroupSeed(j + x, i + z);
+                initGroupSeed(arraysCache, j + x, i + z);
                 int currentPiece = childInts[(j + i * x_size)];               
 
                 if ((currentPiece & LandBit) != 0 && (currentPiece & BiomeGroupBits) == 0)    // land without biome group
                 {
                     SortedMap<Integer, BiomeGroup> possibleGroups = biomeGroupManager.getGroupDepthMap(depth);
-                    int newGroupRarity = nextGroupInt(BiomeGroupManager.getMaxRarityFromPossibles(possibleGroups)*entropy);
+                    int newGroupRarity = nextGroupInt(arraysCache, BiomeGroupManager.getMaxRarityFromPossibles(possibleGroups)*entropy);
                         //>>	Spawn the biome based on the rarity spectrum
                         for (Entry<Integer, BiomeGroup> group : possibleGroups.entrySet())
                         {
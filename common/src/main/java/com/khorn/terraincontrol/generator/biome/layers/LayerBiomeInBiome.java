@@ -3,8 +3,7 @@ package com.khorn.terraincontrol.generator.biome.layers;
 import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.generator.biome.ArraysCache;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class LayerBiomeInBiome extends Layer
 {
@@ -18,19 +17,31 @@ public class LayerBiomeInBiome extends Layer
         boolean inOcean = false;
     }
 
+    private static final int[] NO_ISLES = new int[0];
+
     private final long worldSeed;
-    private List<Isle> isles = new ArrayList<Isle>();
+    private Isle[] isles = new Isle[0];
+
+    /**
+     * For every biome id, the indexes of the isles that can possibly spawn
+     * in that biome, in the order the isles were added. Isles that cannot
+     * spawn in a biome are skipped entirely, which saves initializing the
+     * random number generator for them. As every isle uses its own seed,
+     * skipping isles doesn't change the outcome for the other isles.
+     */
+    private int[][] islesByHostBiome = new int[1024][];
 
     public LayerBiomeInBiome(Layer childLayer, long worldSeed)
     {
         this.worldSeed = worldSeed;
         this.child = childLayer;
+        Arrays.fill(this.islesByHostBiome, NO_ISLES);
     }
 
     /**
      * Adds an isle to be spawned by this layer.
      * @param biome The biome of the isle.
-     * @param chance The isle spawns when nextInt(chance) == 0.
+     * @param chance The isle spawns when nextInt(cache, chance) == 0.
      * @param biomeCanSpawnIn The biomes the isle can spawn in.
      */
     public void addIsle(LocalBiome biome, int chance, boolean[] biomeCanSpawnIn, boolean inOcean)
@@ -45,7 +56,40 @@ public class LayerBiomeInBiome extends Layer
         // (keep in mind that the resulting world seed is based on the base seed)
         isle.scrambledWorldSeed = getScrambledWorldSeed(4000 + isle.biomeId, this.worldSeed);
 
-        this.isles.add(isle);
+        this.isles = Arrays.copyOf(this.isles, this.isles.length + 1);
+        this.isles[this.isles.length - 1] = isle;
+        indexIsles();
+    }
+
+    private void indexIsles()
+    {
+        int[] isleIndexes = new int[this.isles.length];
+        for (int hostBiome = 0; hostBiome < this.islesByHostBiome.length; hostBiome++)
+        {
+            int count = 0;
+            for (int i = 0; i < this.isles.length; i++)
+            {
+                // Isles in the ocean check for land instead of for the biome
+                if (this.isles[i].inOcean || this.isles[i].canSpawnIn[hostBiome])
+                {
+                    isleIndexes[count++] = i;
+                }
+            }
+            this.islesByHostBiome[hostBiome] = count == 0 ? NO_ISLES : Arrays.copyOf(isleIndexes, count);
+        }
+    }
+
+    /**
+     * Gets the position in the given array of isle indexes of the first isle
+     * that comes after the given isle.
+     * @param isleIndexes Indexes of isles, sorted.
+     * @param isleIndex   Index of the isle.
+     * @return The position.
+     */
+    private static int getPositionAfter(int[] isleIndexes, int isleIndex)
+    {
+        int position = Arrays.binarySearch(isleIndexes, isleIndex);
+        return position >= 0 ? position + 1 : -position - 1;
     }
 
     @Override
@@ -67,12 +111,17 @@ public class LayerBiomeInBiome extends Layer
                 int selection = childInts[(xi + 1 + (zi + 1) * xSize0)];
 
                 // Then decide whether an isle should spawn
-                for (Isle isle : this.isles)
+                int hostBiome = selection & BiomeBits;
+                int[] isleIndexes = this.islesByHostBiome[hostBiome];
+                int position = 0;
+                while (position < isleIndexes.length)
                 {
-                    // Make the scrambled world seed unique for each isle
+                    int isleIndex = isleIndexes[position++];
+                    Isle isle = this.isles[isleIndex];
+
+                    // Use a scrambled world seed unique for each isle
                     // (each island used to have its own layer)
-                    this.scrambledWorldSeed = isle.scrambledWorldSeed;
-                    initChunkSeed(xi + x, zi + z);
+                    initChunkSeed(cache, isle.scrambledWorldSeed, xi + x, zi + z);
                     boolean alreadySpawned = false;
                     if (isle.inOcean)
                     {
@@ -81,7 +130,7 @@ public class LayerBiomeInBiome extends Layer
                         int swCheck = childInts[(xi + 0 + (zi + 2) * xSize0)] & LandBit;
                         int seCheck = childInts[(xi + 2 + (zi + 2) * xSize0)] & LandBit;
 
-                        if (((selection & LandBit) == 0) && (nwCheck == 0) && (neCheck == 0) && (swCheck == 0) && (seCheck == 0) && nextInt(isle.chance) == 0)
+                        if (((selection & LandBit) == 0) && (nwCheck == 0) && (neCheck == 0) && (swCheck == 0) && (seCheck == 0) && nextInt(cache, isle.chance) == 0)
                         {
                             selection = (selection & IceBit) | (selection & RiverBits) | LandBit | isle.biomeId | IslandBit;
                             alreadySpawned = true;
@@ -94,9 +143,18 @@ public class LayerBiomeInBiome extends Layer
                         int swCheck = childInts[(xi + 0 + (zi + 2) * xSize0)] & BiomeBits;
                         int seCheck = childInts[(xi + 2 + (zi + 2) * xSize0)] & BiomeBits;
 
-                        if (isle.canSpawnIn[(selection & BiomeBits)] && isle.canSpawnIn[nwCheck] && isle.canSpawnIn[neCheck] && isle.canSpawnIn[swCheck] && isle.canSpawnIn[seCheck] && nextInt(isle.chance) == 0)
+                        if (isle.canSpawnIn[(selection & BiomeBits)] && isle.canSpawnIn[nwCheck] && isle.canSpawnIn[neCheck] && isle.canSpawnIn[swCheck] && isle.canSpawnIn[seCheck] && nextInt(cache, isle.chance) == 0)
                             selection = (selection & LandBit) | (selection & IceBit) | (selection & RiverBits) | isle.biomeId | IslandBit;
                     }
+
+                    if ((selection & BiomeBits) != hostBiome)
+                    {
+                        // An isle spawned, the remaining isles must be able
+                        // to spawn in that isle instead
+                        hostBiome = selection & BiomeBits;
+                        isleIndexes = this.islesByHostBiome[hostBiome];
+                        position = getPositionAfter(isleIndexes, isleIndex);
+                    }
                 }
                 thisInts[(xi + zi * xSize)] = selection;
             }
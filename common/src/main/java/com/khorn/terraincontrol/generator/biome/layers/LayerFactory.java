@@ -18,6 +18,11 @@ import java.util.List;
  */
 public final class LayerFactory
 {
+    /**
+     * Maximum amount of tiles kept by a {@link LayerTileCache}.
+     */
+    private static final int LAYER_CACHE_TILES = 128;
+
     private LayerFactory()
     {
         // No instances
@@ -411,6 +416,13 @@ public final class LayerFactory
                 layerBiomeBorder.child = mainLayer;
                 mainLayer = layerBiomeBorder;
             }
+
+            if (worldConfig.biomeLayerCacheDepth == depth)
+            {
+                mainLayer = new LayerTileCache(mainLayer, LAYER_CACHE_TILES);
+                if (worldConfig.randomRivers && riversStarted)
+                    RiverLayer = new LayerTileCache(RiverLayer, LAYER_CACHE_TILES);
+            }
         }
 
         if (worldConfig.randomRivers)
@@ -0,0 +1,122 @@
+package com.khorn.terraincontrol.generator.biome.layers;
+
+import com.khorn.terraincontrol.generator.biome.ArraysCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the output of the child layer in fixed-size tiles.
+ * <p>
+ * The upper layers work on a very low resolution, so a single cell of those
+ * layers covers many chunks. Without this layer, every chunk recalculates
+ * the same cells through the whole chain of layers. With this layer, a full
+ * tile is calculated once and then served from memory until it hasn't been
+ * used for a while.
+ * <p>
+ * This only works because the output of a layer for a cell never depends on
+ * the area that is requested, only on the position of the cell. The tiles
+ * are shared between all threads using this layer.
+ */
+public class LayerTileCache extends Layer
+{
+    private static final int TILE_BITS = 6;
+    private static final int TILE_SIZE = 1 << TILE_BITS;
+
+    private final Map<Long, int[]> tiles;
+
+    /**
+     * Creates a new tile cache.
+     * @param childLayer The layer to cache the output of.
+     * @param maxTiles   The maximum amount of tiles to keep. Each tile takes
+     *                   16 KB.
+     */
+    public LayerTileCache(Layer childLayer, final int maxTiles)
+    {
+        this.child = childLayer;
+        this.tiles = new LinkedHashMap<Long, int[]>(maxTiles, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest)
+            {
+                return size() > maxTiles;
+            }
+        };
+    }
+
+    @Override
+    public void initWorldGenSeed(long worldSeed)
+    {
+        super.initWorldGenSeed(worldSeed);
+
+        // Tiles of the old seed are no longer valid
+        synchronized (tiles)
+        {
+            tiles.clear();
+        }
+    }
+
+    @Override
+    public int[] getInts(ArraysCache cache, int x, int z, int xSize, int zSize)
+    {
+        int[] thisInts = cache.getArray(xSize * zSize);
+
+        int minTileX = x >> TILE_BITS;
+        int maxTileX = (x + xSize - 1) >> TILE_BITS;
+        int minTileZ = z >> TILE_BITS;
+        int maxTileZ = (z + zSize - 1) >> TILE_BITS;
+
+        for (int tileZ = minTileZ; tileZ <= maxTileZ; tileZ++)
+        {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++)
+            {
+                int[] tile = getTile(cache, tileX, tileZ);
+
+                // Copy the part of the tile that overlaps the requested area
+                int tileStartX = tileX << TILE_BITS;
+                int tileStartZ = tileZ << TILE_BITS;
+                int startX = Math.max(x, tileStartX);
+                int endX = Math.min(x + xSize, tileStartX + TILE_SIZE);
+                int startZ = Math.max(z, tileStartZ);
+                int endZ = Math.min(z + zSize, tileStartZ + TILE_SIZE);
+                for (int zi = startZ; zi < endZ; zi++)
+                {
+                    System.arraycopy(tile, (zi - tileStartZ) * TILE_SIZE + (startX - tileStartX),
+                            thisInts, (zi - z) * xSize + (startX - x), endX - startX);
+                }
+            }
+        }
+
+        return thisInts;
+    }
+
+    private int[] getTile(ArraysCache cache, int tileX, int tileZ)
+    {
+        Long key = Long.valueOf(((long) tileX << 32) | (tileZ & 0xFFFFFFFFL));
+        int[] tile;
+        synchronized (tiles)
+        {
+            tile = tiles.get(key);
+        }
+        if (tile != null)
+        {
+            return tile;
+        }
+
+        // Calculated outside the lock, so that other threads can keep using
+        // the cache. Two threads may calculate the same tile at the same time,
+        // but they will get the same result.
+        int[] childInts = this.child.getInts(cache, tileX << TILE_BITS, tileZ << TILE_BITS, TILE_SIZE, TILE_SIZE);
+        tile = new int[TILE_SIZE * TILE_SIZE];
+        System.arraycopy(childInts, 0, tile, 0, tile.length);
+
+        synchronized (tiles)
+        {
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+}
@@ -30,14 +30,14 @@ public class LayerZoom extends Layer
             int i5 = childInts[((zi + 1) * xSize0)];
             for (int xi = 0; xi < xSize0 - 1; xi++)
             {
-                initChunkSeed((long) (xi + x0 << 1), (long) (zi + z0 << 1));
+                initChunkSeed(cache, (long) (xi + x0 << 1), (long) (zi + z0 << 1));
                 int northCheck = childInts[(xi + 1 + (zi) * xSize0)];
                 int centerCheck = childInts[(xi + 1 + (zi + 1) * xSize0)];
 
                 thisInts[i3] = i4;
-                thisInts[(i3++ + n)] = RndParam(i4, i5);
-                thisInts[i3] = RndParam(i4, northCheck);
-                thisInts[(i3++ + n)] = getRandomOf4(i4, northCheck, i5, centerCheck);
+                thisInts[(i3++ + n)] = RndParam(cache, i4, i5);
+                thisInts[i3] = RndParam(cache, i4, northCheck);
+                thisInts[(i3++ + n)] = getRandomOf4(cache, i4, northCheck, i5, centerCheck);
 
                 i4 = northCheck;
                 i5 = centerCheck;
@@ -51,9 +51,9 @@ public class LayerZoom extends Layer
         return ret;
     }
 
-    protected int RndParam(int a, int b)
+    protected int RndParam(ArraysCache cache, int a, int b)
     {
-        return nextInt(2) == 0 ? a : b;
+        return nextInt(cache, 2) == 0 ? a : b;
     }
 
 }
@@ -35,18 +35,18 @@ public class LayerZoomVoronoi extends Layer
             for (int i7 = 0; i7 < n - 1; i7++)
             {
                 double d1 = j * 0.9D;
-                initChunkSeed(i7 + k << i, i4 + m << i);
-                double d2 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                double d3 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                initChunkSeed(i7 + k + 1 << i, i4 + m << i);
-                double d4 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
-                double d5 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                initChunkSeed(i7 + k << i, i4 + m + 1 << i);
-                double d6 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                double d7 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
-                initChunkSeed(i7 + k + 1 << i, i4 + m + 1 << i);
-                double d8 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
-                double d9 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
+                initChunkSeed(cache, i7 + k << i, i4 + m << i);
+                double d2 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                double d3 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                initChunkSeed(cache, i7 + k + 1 << i, i4 + m << i);
+                double d4 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
+                double d5 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                initChunkSeed(cache, i7 + k << i, i4 + m + 1 << i);
+                double d6 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                double d7 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
+                initChunkSeed(cache, i7 + k + 1 << i, i4 + m + 1 << i);
+                double d8 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
+                double d9 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
 
                 int i8 = childInts[(i7 + 1 + (i4) * n)];
                 int i9 = childInts[(i7 + 1 + (i4 + 1) * n)];
@@ -1,5 +1,6 @@
 package com.khorn.terraincontrol.generator.noise;
 
+import java.util.Arrays;
 import java.util.Random;
 
 public class NoiseGeneratorNewOctaves {
@@ -28,6 +29,47 @@ public class NoiseGeneratorNewOctaves {
         return d2;
     }
 
+    /**
+     * Fills a grid with the same values as {@link #a(double, double)}, so
+     * that the value for block ({@code xStart + x}, {@code zStart + z}) is
+     * {@code a((xStart + x) * scale, (zStart + z) * scale)}. The results are
+     * exactly the same, but the octaves are evaluated one at a time for the
+     * whole grid.
+     *
+     * @param result Array to store the result in, may be null.
+     * @param xStart X of the first block.
+     * @param zStart Z of the first block.
+     * @param xSize  Size of the grid on the x axis.
+     * @param zSize  Size of the grid on the z axis.
+     * @param scale  The scale, applied to both coordinates.
+     * @return The array, with the value for ({@code x}, {@code z}) at
+     *         index {@code x + z * xSize}.
+     */
+    public double[] fillGrid(double[] result, int xStart, int zStart, int xSize, int zSize, double scale) {
+        if (result == null || result.length < xSize * zSize) {
+            result = new double[xSize * zSize];
+        } else {
+            Arrays.fill(result, 0, xSize * zSize, 0.0D);
+        }
+
+        double d3 = 1.0D;
+
+        for (int i = 0; i < this.b; ++i) {
+            NoiseGeneratorNew octave = this.a[i];
+            int index = 0;
+            for (int z = 0; z < zSize; ++z) {
+                double d1 = (double) (zStart + z) * scale * d3;
+                for (int x = 0; x < xSize; ++x) {
+                    double d0 = (double) (xStart + x) * scale * d3;
+                    result[index++] += octave.a(d0, d1) / d3;
+                }
+            }
+            d3 /= 2.0D;
+        }
+
+        return result;
+    }
+
     public double[] a(double[] adouble, double d0, double d1, int i, int j, double d2, double d3, double d4) {
         return this.a(adouble, d0, d1, i, j, d2, d3, d4, 0.5D);
     }
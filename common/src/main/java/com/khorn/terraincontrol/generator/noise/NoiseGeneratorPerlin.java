@@ -4,7 +4,22 @@ import java.util.Random;
 
 public class NoiseGeneratorPerlin
 {
-    private int permutations[];
+    /**
+     * Table version of {@link #grad(int, double, double, double)}. For every
+     * hash the gradient is {@code signU * u + signV * v}, with {@code u}
+     * and {@code v} selected by multiplying the coordinates with 0 or 1.
+     * Coordinates are never -0.0, so these selections are exact, and the
+     * result is bit-identical to {@code grad}.
+     */
+    static final double[] GRAD_U_X = {1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0};
+    static final double[] GRAD_U_Y = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 1, 1};
+    static final double[] GRAD_V_X = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 1, 0};
+    static final double[] GRAD_V_Y = {1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+    static final double[] GRAD_V_Z = {0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 1, 1, 0, 1, 0, 1};
+    static final double[] GRAD_SIGN_U = {1, -1, 1, -1, 1, -1, 1, -1, 1, -1, 1, -1, 1, -1, 1, -1};
+    static final double[] GRAD_SIGN_V = {1, 1, -1, -1, 1, 1, -1, -1, 1, 1, -1, -1, 1, 1, -1, -1};
+
+    final int permutations[];
     public double xCoord;
     public double yCoord;
     public double zCoord;
@@ -52,6 +67,12 @@ public class NoiseGeneratorPerlin
         return ((j & 1) != 0 ? -d3 : d3) + ((j & 2) != 0 ? -d4 : d4);
     }
 
+    /**
+     * Adds one octave of 3D noise to the array. Terrain generation uses the
+     * faster {@link NoiseGeneratorPerlinOctaves#Noise3D(double[], int, int, int, int, int, int, double, double, double)}
+     * instead; this method is kept as the reference implementation that
+     * the tests compare it with.
+     */
     public void populateNoiseArray3D(double NoiseArray[], double xOffset, double yOffset, double zOffset, int xSize, int ySize, int zSize, double xScale, double yScale, double zScale, double noiseScale)
     {
         int i1 = 0;
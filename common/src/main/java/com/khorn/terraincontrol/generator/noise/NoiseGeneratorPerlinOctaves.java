@@ -10,6 +10,20 @@ public class NoiseGeneratorPerlinOctaves
     private NoiseGeneratorPerlin[] noiseArray;
     private int numOctaves;
 
+    // Working tables of Noise3D, grown to the largest requested size
+    private int[] xLattice = new int[0];
+    private double[] xFraction = new double[0];
+    private double[] xFade = new double[0];
+    private int[] yLattice = new int[0];
+    private double[] yFraction = new double[0];
+    private double[] yFade = new double[0];
+    private int[] zLattice = new int[0];
+    private double[] zFraction = new double[0];
+    private double[] zFade = new double[0];
+    private double[] inverseScale;
+    private int[] cachedY;
+    private double[] corners;
+
     public NoiseGeneratorPerlinOctaves(Random random, int numOctaves)
     {
         this.numOctaves = numOctaves;
@@ -19,24 +33,63 @@ public class NoiseGeneratorPerlinOctaves
         {
             this.noiseArray[j] = new NoiseGeneratorPerlin(random);
         }
+
+        this.inverseScale = new double[numOctaves];
+        this.cachedY = new int[numOctaves];
+        this.corners = new double[numOctaves * 4];
     }
 
+    /**
+     * Adds all octaves of 3D noise to the array. All octaves are evaluated
+     * for every point in one pass, using tables with the lattice
+     * coordinates and fade curves of every octave. The result is
+     * bit-identical to calling
+     * {@link NoiseGeneratorPerlin#populateNoiseArray3D(double[], double, double, double, int, int, int, double, double, double, double)}
+     * once for every octave.
+     *
+     * <p>The tables are kept between calls, so this method must not be
+     * called from multiple threads at the same time.
+     */
     public double[] Noise3D(double[] doubleArray, int xOffset, int yOffset, int zOffset, int xSize, int ySize, int zSize, double xScale, double yScale, double zScale)
     {
         if (doubleArray == null)
         {
             doubleArray = new double[xSize * ySize * zSize];
-        } else
+        }
+
+        int octaves = this.numOctaves;
+        if (this.xLattice.length < octaves * xSize)
         {
-            for (int k1 = 0; k1 < doubleArray.length; ++k1)
-            {
-                doubleArray[k1] = 0.0D;
-            }
+            this.xLattice = new int[octaves * xSize];
+            this.xFraction = new double[octaves * xSize];
+            this.xFade = new double[octaves * xSize];
+        }
+        if (this.yLattice.length < octaves * ySize)
+        {
+            this.yLattice = new int[octaves * ySize];
+            this.yFraction = new double[octaves * ySize];
+            this.yFade = new double[octaves * ySize];
         }
+        if (this.zLattice.length < octaves * zSize)
+        {
+            this.zLattice = new int[octaves * zSize];
+            this.zFraction = new double[octaves * zSize];
+            this.zFade = new double[octaves * zSize];
+        }
+        int[] xLattice = this.xLattice;
+        double[] xFraction = this.xFraction;
+        double[] xFade = this.xFade;
+        int[] yLattice = this.yLattice;
+        double[] yFraction = this.yFraction;
+        double[] yFade = this.yFade;
+        int[] zLattice = this.zLattice;
+        double[] zFraction = this.zFraction;
+        double[] zFade = this.zFade;
+        double[] inverseScale = this.inverseScale;
 
         double d3 = 1.0D;
 
-        for (int l1 = 0; l1 < this.numOctaves; ++l1)
+        for (int l1 = 0; l1 < octaves; ++l1)
         {
             double d4 = (double) xOffset * d3 * xScale;
             double d5 = (double) yOffset * d3 * yScale;
@@ -50,13 +103,111 @@ public class NoiseGeneratorPerlinOctaves
             j2 %= 16777216L;
             d4 += (double) i2;
             d6 += (double) j2;
-            this.noiseArray[l1].populateNoiseArray3D(doubleArray, d4, d5, d6, xSize, ySize, zSize, xScale * d3, yScale * d3, zScale * d3, d3);
+
+            NoiseGeneratorPerlin octave = this.noiseArray[l1];
+            fillLatticeTable(xLattice, xFraction, xFade, l1 * xSize, xSize, d4, xScale * d3, octave.xCoord);
+            fillLatticeTable(yLattice, yFraction, yFade, l1 * ySize, ySize, d5, yScale * d3, octave.yCoord);
+            fillLatticeTable(zLattice, zFraction, zFade, l1 * zSize, zSize, d6, zScale * d3, octave.zCoord);
+            inverseScale[l1] = 1.0D / d3;
             d3 /= 2.0D;
         }
 
+        // Interpolated corners of every octave, reused while the y lattice
+        // coordinate doesn't change
+        int[] cachedY = this.cachedY;
+        double[] corners = this.corners;
+
+        int index = 0;
+        for (int x = 0; x < xSize; x++)
+        {
+            for (int z = 0; z < zSize; z++)
+            {
+                for (int y = 0; y < ySize; y++)
+                {
+                    double sum = 0.0D;
+                    for (int octave = 0; octave < octaves; octave++)
+                    {
+                        int xi = octave * xSize + x;
+                        int yi = octave * ySize + y;
+                        int zi = octave * zSize + z;
+                        double fx = xFraction[xi];
+                        double fy = yFraction[yi];
+                        double fz = zFraction[zi];
+                        double fadeX = xFade[xi];
+                        int latticeY = yLattice[yi];
+                        int c = octave * 4;
+                        if (y == 0 || latticeY != cachedY[octave])
+                        {
+                            cachedY[octave] = latticeY;
+                            int[] p = this.noiseArray[octave].permutations;
+                            int latticeX = xLattice[xi];
+                            int latticeZ = zLattice[zi];
+                            int j2 = p[latticeX] + latticeY;
+                            int k2 = p[j2] + latticeZ;
+                            int l2 = p[j2 + 1] + latticeZ;
+                            int i3 = p[latticeX + 1] + latticeY;
+                            int k3 = p[i3] + latticeZ;
+                            int l3 = p[i3 + 1] + latticeZ;
+                            double a;
+                            double b;
+                            a = grad(p[k2], fx, fy, fz);
+                            b = grad(p[k3], fx - 1.0D, fy, fz);
+                            corners[c] = a + fadeX * (b - a);
+                            a = grad(p[l2], fx, fy - 1.0D, fz);
+                            b = grad(p[l3], fx - 1.0D, fy - 1.0D, fz);
+                            corners[c + 1] = a + fadeX * (b - a);
+                            a = grad(p[k2 + 1], fx, fy, fz - 1.0D);
+                            b = grad(p[k3 + 1], fx - 1.0D, fy, fz - 1.0D);
+                            corners[c + 2] = a + fadeX * (b - a);
+                            a = grad(p[l2 + 1], fx, fy - 1.0D, fz - 1.0D);
+                            b = grad(p[l3 + 1], fx - 1.0D, fy - 1.0D, fz - 1.0D);
+                            corners[c + 3] = a + fadeX * (b - a);
+                        }
+                        double fadeY = yFade[yi];
+                        double d13 = corners[c];
+                        double d15 = corners[c + 1];
+                        double d16 = corners[c + 2];
+                        double d18 = corners[c + 3];
+                        double d28 = d13 + fadeY * (d15 - d13);
+                        double d29 = d16 + fadeY * (d18 - d16);
+                        double d30 = d28 + zFade[zi] * (d29 - d28);
+                        sum += d30 * inverseScale[octave];
+                    }
+                    doubleArray[index++] = sum;
+                }
+            }
+        }
+
         return doubleArray;
     }
 
+    /**
+     * Calculates the lattice coordinates, the position within the lattice
+     * cell and the fade curve for every point on one axis.
+     */
+    private static void fillLatticeTable(int[] lattice, double[] fraction, double[] fade, int start, int size, double offset, double scale, double coord)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            double d = offset + (double) i * scale + coord;
+            int floor = (int) d;
+            if (d < (double) floor)
+            {
+                floor--;
+            }
+            d -= floor;
+            lattice[start + i] = floor & 0xff;
+            fraction[start + i] = d;
+            fade[start + i] = d * d * d * (d * (d * 6D - 15D) + 10D);
+        }
+    }
+
+    private static double grad(int hash, double x, double y, double z)
+    {
+        int j = hash & 0xf;
+        return NoiseGeneratorPerlin.GRAD_SIGN_U[j] * (NoiseGeneratorPerlin.GRAD_U_X[j] * x + NoiseGeneratorPerlin.GRAD_U_Y[j] * y)
+                + NoiseGeneratorPerlin.GRAD_SIGN_V[j] * (NoiseGeneratorPerlin.GRAD_V_X[j] * x + NoiseGeneratorPerlin.GRAD_V_Y[j] * y + NoiseGeneratorPerlin.GRAD_V_Z[j] * z);
+    }
 
     public double[] Noise2D(double[] doubleArray, int xOffset, int zOffset, int xSize, int zSize, double xScale, double zScale)
     {
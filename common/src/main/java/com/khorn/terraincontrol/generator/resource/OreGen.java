@@ -124,9 +124,9 @@ public class OreGen extends Resource
                             for (int i5 = m; i5 <= i2; i5++)
                             {
                                 double d15 = (i5 + 0.5D - d9) / (d11 / 2.0D);
-                                if ((d13 * d13 + d14 * d14 + d15 * d15 < 1.0D) && sourceBlocks.contains(world.getMaterial(i3, i4, i5)))
+                                if (d13 * d13 + d14 * d14 + d15 * d15 < 1.0D)
                                 {
-                                    world.setBlock(i3, i4, i5, material);
+                                    world.replaceSourceBlock(i3, i4, i5, material, sourceBlocks);
                                 }
                             }
                         }
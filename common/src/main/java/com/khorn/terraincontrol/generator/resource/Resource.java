@@ -6,6 +6,7 @@ import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.ConfigFunction;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
+import com.khorn.terraincontrol.logging.FlightRecorderEvent;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 
 import java.util.ArrayList;
@@ -150,7 +151,12 @@ public abstract class Resource extends ConfigFunction<BiomeConfig> implements Co
         }
 
         // Spawn
+        Object event = FlightRecorderEvent.RESOURCE.begin();
         spawnInChunk(world, random, villageInChunk, chunkCoord);
+        if (event != null)
+        {
+            FlightRecorderEvent.RESOURCE.commit(event, world.getName(), chunkCoord.getChunkX(), chunkCoord.getChunkZ(), this);
+        }
     }
 
     /**
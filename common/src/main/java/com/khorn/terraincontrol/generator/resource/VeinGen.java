@@ -8,7 +8,9 @@ import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 public class VeinGen extends Resource
@@ -24,6 +26,19 @@ public class VeinGen extends Resource
     public MaterialSet sourceBlocks; // Blocks for the ore to spawn in
     public double veinRarity; // Chance for the vein to spawn in a chunk
 
+    /**
+     * Marks chunks without a vein start in {@link #veinStarts}.
+     */
+    private static final Vein NO_VEIN = new Vein(0, 0, 0, 0);
+
+    /**
+     * The vein starts of recently searched chunks. Populating neighbouring
+     * chunks searches mostly the same chunks, so this saves creating a
+     * seeded random generator for every searched chunk again.
+     */
+    private final Map<Long, Vein> veinStarts;
+    private long veinStartsSeed;
+
     public VeinGen(BiomeConfig biomeConfig, List<String> args) throws InvalidConfigException
     {
         super(biomeConfig);
@@ -41,6 +56,20 @@ public class VeinGen extends Resource
         maxAltitude = readInt(args.get(8), minAltitude,
                 TerrainControl.WORLD_HEIGHT);
         sourceBlocks = readMaterials(args, 9);
+
+        // Enough for the search areas of a few populated chunks
+        int searchDiameter = (this.maxRadius + 15) / 16 * 2 + 1;
+        final int maxVeinStarts = searchDiameter * searchDiameter * 4;
+        veinStarts = new LinkedHashMap<Long, Vein>(maxVeinStarts, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Vein> eldest)
+            {
+                return size() > maxVeinStarts;
+            }
+        };
     }
 
     @Override
@@ -84,7 +113,7 @@ public class VeinGen extends Resource
     public Vein getVeinStartInChunk(LocalWorld world, int chunkX, int chunkZ)
     {
         // Create a random generator that is constant for this chunk and vein
-        Random random = RandomHelper.getRandomForCoords(chunkX, chunkZ, material.hashCode() * (minRadius + maxRadius + 100) + world.getSeed());
+        Random random = RandomHelper.getPooledRandomForCoords(chunkX, chunkZ, material.hashCode() * (minRadius + maxRadius + 100) + world.getSeed());
 
         if (random.nextDouble() * 100.0 < veinRarity)
         {
@@ -98,6 +127,36 @@ public class VeinGen extends Resource
         return null;
     }
 
+    /**
+     * Same as {@link #getVeinStartInChunk(LocalWorld, int, int)}, but uses
+     * the cached vein starts when possible.
+     * @param world  The world to spawn in.
+     * @param chunkX The x of the chunk.
+     * @param chunkZ The z of the chunk.
+     * @return The vein that starts in the chunk, or null if there is no
+     *         starting vein.
+     */
+    private Vein getCachedVeinStartInChunk(LocalWorld world, int chunkX, int chunkZ)
+    {
+        Long key = Long.valueOf(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL));
+        synchronized (veinStarts)
+        {
+            if (veinStartsSeed != world.getSeed())
+            {
+                // Vein starts of another seed are no longer valid
+                veinStarts.clear();
+                veinStartsSeed = world.getSeed();
+            }
+            Vein vein = veinStarts.get(key);
+            if (vein == null)
+            {
+                vein = getVeinStartInChunk(world, chunkX, chunkZ);
+                veinStarts.put(key, vein == null ? NO_VEIN : vein);
+            }
+            return vein == NO_VEIN ? null : vein;
+        }
+    }
+
     @Override
     public int hashCode()
     {
@@ -140,7 +199,7 @@ public class VeinGen extends Resource
         {
             for (int searchChunkZ = currentChunkZ - searchRadius; searchChunkZ < currentChunkZ + searchRadius; searchChunkZ++)
             {
-                Vein vein = getVeinStartInChunk(world, searchChunkX, searchChunkZ);
+                Vein vein = getCachedVeinStartInChunk(world, searchChunkX, searchChunkZ);
                 if (vein != null && vein.reachesChunk(currentChunkX, currentChunkZ))
                 {
                     vein.spawn(world, random, chunkCoord, this);
@@ -76,11 +76,17 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
         this.silverStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 8);
     }
 
-    private LocalMaterialData getBlockData(int i, int j, int k)
+    /**
+     * Gets the offset in the block data array for the given x coordinate.
+     */
+    private int getBlockDataOffset(int i)
     {
-        int l = (int) Math.round(this.noiseGenBlockData.a(i * 1.0D / 512.0D, i * 1.0D / 512.0D) * 2.0D);
+        return (int) Math.round(this.noiseGenBlockData.a(i * 1.0D / 512.0D, i * 1.0D / 512.0D) * 2.0D);
+    }
 
-        return this.blockDataValuesArray[(j + l + 64) % 64];
+    private LocalMaterialData getBlockData(int blockDataOffset, int j)
+    {
+        return this.blockDataValuesArray[(j + blockDataOffset + 64) % 64];
     }
 
     private void initializeSmallByteArray(Random random)
@@ -195,14 +201,15 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
                 this.noiseGenBryce2 = new NoiseGeneratorNewOctaves(newRandom, 1);
             }
 
-            int k = (xInWorld & -16) + (zInWorld & 15);
-            int l = (zInWorld & -16) + (xInWorld & 15);
-            double bryceNoiseValue = Math.min(Math.abs(noise), this.noiseGenBryce1.a(k * 0.25D, l * 0.25D));
+            // Like vanilla, the noise is sampled at ((xInWorld & -16) + z,
+            // (zInWorld & -16) + x), so x and z are swapped within the chunk
+            int transposedIndex = z + x * 16;
+            double bryceNoiseValue = Math.min(Math.abs(noise), generatingChunk.getChunkNoise(this.noiseGenBryce1, 0.25D)[transposedIndex]);
 
             if (bryceNoiseValue > 0.0D)
             {
                 double d3 = 0.001953125D;
-                double d4 = Math.abs(this.noiseGenBryce2.a(k * d3, l * d3));
+                double d4 = Math.abs(generatingChunk.getChunkNoise(this.noiseGenBryce2, d3)[transposedIndex]);
 
                 bryceHeight = bryceNoiseValue * bryceNoiseValue * 2.5D;
                 double d5 = Math.ceil(d4 * 50.0D) + 14.0D;
@@ -223,6 +230,8 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
         boolean cosNoiseIsLargerThanZero = MathHelper.cos((float) (noise / 3.0D * Math.PI)) > 0.0D;
         int k1 = -1;
         boolean belowSand = false;
+        // Only depends on xInWorld, so calculate it once for the column
+        int blockDataOffset = this.getBlockDataOffset(xInWorld);
 
         int maxHeight = generatingChunk.heightCap - 1;
         int minHeight = 0;
@@ -287,7 +296,7 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
                                         iblockdata3 = this.hardenedClay;
                                     } else
                                     {
-                                        iblockdata3 = this.getBlockData(xInWorld, y, zInWorld);
+                                        iblockdata3 = this.getBlockData(blockDataOffset, y);
                                     }
                                 } else
                                 {
@@ -316,7 +325,7 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
                             chunkBuffer.setBlock(x, y, z, this.orangeStainedClay);
                         } else
                         {
-                            iblockdata3 = this.getBlockData(xInWorld, y, zInWorld);
+                            iblockdata3 = this.getBlockData(blockDataOffset, y);
                             chunkBuffer.setBlock(x, y, z, iblockdata3);
                         }
                     }
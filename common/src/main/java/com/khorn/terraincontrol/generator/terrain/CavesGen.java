@@ -7,6 +7,7 @@ import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.WorldConfig;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
@@ -37,7 +38,7 @@ public class CavesGen extends TerrainGenBase
         float f1 = 0.0F;
         float f2 = 0.0F;
 
-        Random localRandom = new Random(seed);
+        Random localRandom = new FastRandom(seed);
 
         if (maxAngle <= 0)
         {
@@ -8,6 +8,7 @@ import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.WorldConfig;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
@@ -27,7 +28,7 @@ public class RavinesGen extends TerrainGenBase
 
     protected void placeBlocks(long paramLong, ChunkBuffer generatingChunkBuffer, double paramDouble1, double paramDouble2, double paramDouble3, float paramFloat1, float paramFloat2, float paramFloat3, int size, double paramDouble4)
     {
-        Random localRandom = new Random(paramLong);
+        Random localRandom = new FastRandom(paramLong);
 
         ChunkCoordinate generatingChunk = generatingChunkBuffer.getChunkCoordinate();
         double d1 = generatingChunk.getBlockXCenter();
@@ -5,6 +5,7 @@ import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
 
 import java.util.Random;
@@ -16,7 +17,7 @@ public abstract class TerrainGenBase
     protected final LocalMaterialData lava = TerrainControl.toLocalMaterialData(DefaultMaterial.STATIONARY_LAVA, 0);
 
     protected int checkAreaSize = 8;
-    protected Random random = new Random();
+    protected Random random = new FastRandom();
     protected LocalWorld world;
     private final long worldLong1;
     private final long worldLong2;
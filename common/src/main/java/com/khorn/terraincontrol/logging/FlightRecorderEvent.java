@@ -0,0 +1,219 @@
+package com.khorn.terraincontrol.logging;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event types for the Java Flight Recorder, so that a recording shows what
+ * the generator was doing, and for which preset, resource or object.
+ *
+ * <p>The event types are created at runtime using the {@code jdk.jfr} API,
+ * which is only accessed through reflection. On Java versions without that
+ * API, all methods of this class silently do nothing.
+ *
+ * <p>Usage:
+ * <pre>
+ * Object event = FlightRecorderEvent.RESOURCE.begin();
+ * // Do the work
+ * if (event != null)
+ * {
+ *     FlightRecorderEvent.RESOURCE.commit(event, worldName, chunkX, chunkZ, resource);
+ * }
+ * </pre>
+ * The null check keeps the values from being boxed into an array when
+ * nothing is recorded, which is almost always. Values for fields of type
+ * String are converted using {@link String#valueOf(Object)}, but only if
+ * the event is actually recorded.
+ */
+public final class FlightRecorderEvent
+{
+    private static final String CATEGORY = "OpenTerrainGenerator";
+
+    /**
+     * Generating the terrain, surface, caves and ravines of a chunk.
+     */
+    public static final FlightRecorderEvent CHUNK_TERRAIN = new FlightRecorderEvent("ChunkTerrain", "Chunk Terrain Generation",
+            new Class<?>[] {String.class, int.class, int.class},
+            new String[] {"world", "chunkX", "chunkZ"});
+
+    /**
+     * Populating a chunk: structures, resources, mobs and freezing.
+     */
+    public static final FlightRecorderEvent CHUNK_POPULATION = new FlightRecorderEvent("ChunkPopulation", "Chunk Population",
+            new Class<?>[] {String.class, int.class, int.class, String.class},
+            new String[] {"world", "chunkX", "chunkZ", "biome"});
+
+    /**
+     * Processing a single resource in a chunk.
+     */
+    public static final FlightRecorderEvent RESOURCE = new FlightRecorderEvent("Resource", "Resource",
+            new Class<?>[] {String.class, int.class, int.class, String.class},
+            new String[] {"world", "chunkX", "chunkZ", "resource"});
+
+    /**
+     * Spawning a custom object.
+     */
+    public static final FlightRecorderEvent OBJECT_SPAWN = new FlightRecorderEvent("ObjectSpawn", "Custom Object Spawn",
+            new Class<?>[] {String.class, String.class, String.class, int.class, int.class, int.class, int.class},
+            new String[] {"world", "object", "rotation", "blockCount", "x", "y", "z"});
+
+    /**
+     * Calculating the biomes of a chunk that were not cached.
+     */
+    public static final FlightRecorderEvent BIOME_CACHE_MISS = new FlightRecorderEvent("BiomeCacheMiss", "Biome Cache Miss",
+            new Class<?>[] {String.class, int.class, int.class},
+            new String[] {"world", "chunkX", "chunkZ"});
+
+    /**
+     * Reloading the configs of a world.
+     */
+    public static final FlightRecorderEvent CONFIG_RELOAD = new FlightRecorderEvent("ConfigReload", "Config Reload",
+            new Class<?>[] {String.class, boolean.class},
+            new String[] {"world", "fullReload"});
+
+    private static Method createMethod;
+    private static Method newEventMethod;
+    private static Method getEventTypeMethod;
+    private static Method isEnabledMethod;
+    private static Method beginMethod;
+    private static Method endMethod;
+    private static Method shouldCommitMethod;
+    private static Method setMethod;
+    private static Method commitMethod;
+    private static Constructor<?> annotationElementConstructor;
+    private static Constructor<?> valueDescriptorConstructor;
+
+    private final Class<?>[] fieldTypes;
+    private Object factory;
+    private Object eventType;
+
+    private FlightRecorderEvent(String name, String label, Class<?>[] fieldTypes, String[] fieldNames)
+    {
+        this.fieldTypes = fieldTypes;
+        if (!initReflection())
+        {
+            return;
+        }
+        try
+        {
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Name"), "otg." + name));
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Label"), label));
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Category"), new String[] {CATEGORY}));
+
+            List<Object> fields = new ArrayList<Object>();
+            for (int i = 0; i < fieldTypes.length; i++)
+            {
+                fields.add(valueDescriptorConstructor.newInstance(fieldTypes[i], fieldNames[i]));
+            }
+
+            this.factory = createMethod.invoke(null, annotations, fields);
+            this.eventType = getEventTypeMethod.invoke(this.factory);
+        } catch (Throwable e)
+        {
+            this.factory = null;
+        }
+    }
+
+    /**
+     * Looks up the jdk.jfr API.
+     * @return True if the API is available, false otherwise.
+     */
+    private static synchronized boolean initReflection()
+    {
+        if (createMethod != null)
+        {
+            return true;
+        }
+        try
+        {
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> eventTypeClass = Class.forName("jdk.jfr.EventType");
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+            newEventMethod = factoryClass.getMethod("newEvent");
+            getEventTypeMethod = factoryClass.getMethod("getEventType");
+            isEnabledMethod = eventTypeClass.getMethod("isEnabled");
+            beginMethod = eventClass.getMethod("begin");
+            endMethod = eventClass.getMethod("end");
+            shouldCommitMethod = eventClass.getMethod("shouldCommit");
+            setMethod = eventClass.getMethod("set", int.class, Object.class);
+            commitMethod = eventClass.getMethod("commit");
+            annotationElementConstructor = annotationElementClass.getConstructor(Class.class, Object.class);
+            valueDescriptorConstructor = valueDescriptorClass.getConstructor(Class.class, String.class);
+            // Set last, as it marks the reflection as complete
+            createMethod = factoryClass.getMethod("create", List.class, List.class);
+            return true;
+        } catch (Throwable e)
+        {
+            // No flight recorder on this JVM
+            return false;
+        }
+    }
+
+    /**
+     * Starts an event, if a recording that includes this event type is
+     * running.
+     * @return The event, or null if the event is not recorded.
+     */
+    public Object begin()
+    {
+        if (this.factory == null)
+        {
+            return null;
+        }
+        try
+        {
+            if (!((Boolean) isEnabledMethod.invoke(this.eventType)))
+            {
+                return null;
+            }
+            Object event = newEventMethod.invoke(this.factory);
+            beginMethod.invoke(event);
+            return event;
+        } catch (Throwable e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Ends an event and writes it to the recording.
+     * @param event  The event returned by {@link #begin()}. When null, this
+     *               method does nothing.
+     * @param values The values of the fields, in the order of the event
+     *               type.
+     */
+    public void commit(Object event, Object... values)
+    {
+        if (event == null)
+        {
+            return;
+        }
+        try
+        {
+            endMethod.invoke(event);
+            if (!((Boolean) shouldCommitMethod.invoke(event)))
+            {
+                return;
+            }
+            for (int i = 0; i < values.length; i++)
+            {
+                Object value = values[i];
+                if (this.fieldTypes[i] == String.class && value != null && !(value instanceof String))
+                {
+                    value = String.valueOf(value);
+                }
+                setMethod.invoke(event, i, value);
+            }
+            commitMethod.invoke(event);
+        } catch (Throwable e)
+        {
+            // Ignore, a missing event is not worth breaking generation for
+        }
+    }
+}
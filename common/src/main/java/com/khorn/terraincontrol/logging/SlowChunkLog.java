@@ -0,0 +1,133 @@
+package com.khorn.terraincontrol.logging;
+
+import com.khorn.terraincontrol.TerrainControl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Log file for chunks that took unusually long to generate or populate.
+ * Every record is a single line of JSON, so that the file is easy to
+ * process with other tools.
+ *
+ * <p>The file is stored in the data folder of the plugin. When it grows
+ * too large, it is renamed and a new file is started. Only a few old files
+ * are kept.
+ */
+public final class SlowChunkLog
+{
+    private static final String FILE_NAME = "SlowChunks";
+    private static final String FILE_EXTENSION = ".log";
+    private static final long MAX_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_OLD_FILES = 3;
+
+    private SlowChunkLog()
+    {
+    }
+
+    /**
+     * Appends a record to the log file. Failures are logged.
+     * @param record The record, a single line of JSON.
+     */
+    public static synchronized void write(String record)
+    {
+        File folder = TerrainControl.getEngine().getTCDataFolder();
+        File file = new File(folder, FILE_NAME + FILE_EXTENSION);
+        Writer writer = null;
+        try
+        {
+            if (file.length() > MAX_FILE_SIZE)
+            {
+                rotate(folder, file);
+            }
+            writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+            writer.write(record);
+            writer.write('\n');
+        } catch (IOException e)
+        {
+            TerrainControl.log(LogMarker.WARN, "Failed to write to {}", file);
+            TerrainControl.printStackTrace(LogMarker.TRACE, e);
+        } finally
+        {
+            if (writer != null)
+            {
+                try
+                {
+                    writer.close();
+                } catch (IOException e)
+                {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    private static void rotate(File folder, File file)
+    {
+        File oldest = getOldFile(folder, MAX_OLD_FILES);
+        if (oldest.exists())
+        {
+            oldest.delete();
+        }
+        for (int i = MAX_OLD_FILES - 1; i >= 1; i--)
+        {
+            File oldFile = getOldFile(folder, i);
+            if (oldFile.exists())
+            {
+                oldFile.renameTo(getOldFile(folder, i + 1));
+            }
+        }
+        file.renameTo(getOldFile(folder, 1));
+    }
+
+    private static File getOldFile(File folder, int number)
+    {
+        return new File(folder, FILE_NAME + "." + number + FILE_EXTENSION);
+    }
+
+    /**
+     * Escapes a string for use in a JSON record, and adds quotes around it.
+     * @param string The string.
+     * @return The escaped string.
+     */
+    public static String quote(String string)
+    {
+        StringBuilder builder = new StringBuilder(string.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++)
+        {
+            char c = string.charAt(i);
+            switch (c)
+            {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                    {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else
+                    {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+        return builder.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.khorn.terraincontrol.util;
+
+import java.util.Random;
+
+/**
+ * A random number generator that produces exactly the same numbers as
+ * {@link Random} for the same seed, but without any synchronization.
+ *
+ * <p>{@link Random} stores its seed in an {@code AtomicLong}, so every
+ * number costs a compare-and-set, even though the generators of a world are
+ * never shared between threads. This class keeps the seed in a plain field
+ * instead. It can be used anywhere a {@link Random} is expected, as all
+ * other methods of {@link Random} are built on {@link #next(int)}.
+ *
+ * <p>Instances are not thread safe.
+ */
+public class FastRandom extends Random
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // No field initializers: the constructor of Random calls setSeed before
+    // they would run, which would overwrite the seed
+    private long seed;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    /**
+     * Creates a new random number generator with a seed that is unlikely
+     * to be used by other instances.
+     */
+    public FastRandom()
+    {
+        super();
+    }
+
+    /**
+     * Creates a new random number generator.
+     * @param seed The seed.
+     */
+    public FastRandom(long seed)
+    {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        long nextSeed = (this.seed * MULTIPLIER + ADDEND) & MASK;
+        this.seed = nextSeed;
+        return (int) (nextSeed >>> (48 - bits));
+    }
+
+    @Override
+    public double nextGaussian()
+    {
+        // Same algorithm as Random, including the use of StrictMath
+        if (this.haveNextNextGaussian)
+        {
+            this.haveNextNextGaussian = false;
+            return this.nextNextGaussian;
+        }
+        double v1;
+        double v2;
+        double s;
+        do
+        {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        this.nextNextGaussian = v2 * multiplier;
+        this.haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+}
@@ -0,0 +1,183 @@
+package com.khorn.terraincontrol.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a RGB PNG image row by row, so that the full image never has to be
+ * in memory. {@link javax.imageio.ImageIO} needs the whole image as a
+ * {@link java.awt.image.BufferedImage}, which for a 20000x20000 map is more
+ * than a gigabyte per image.
+ *
+ * <p>Rows must be written from top to bottom, and exactly
+ * {@code height} rows must be written before the writer is closed.
+ */
+public final class PngWriter implements Closeable
+{
+    private static final byte[] PNG_SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    // Compressed data is flushed as an IDAT chunk every time this many bytes are buffered
+    private static final int IDAT_CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream fileStream;
+    private final IdatOutputStream idatStream;
+    private final DeflaterOutputStream deflaterStream;
+    private final Deflater deflater;
+    private final int width;
+    private final int height;
+    private final byte[] rowBuffer;
+    private int rowsWritten = 0;
+
+    /**
+     * Creates a new PNG file, overwriting any existing file.
+     * @param file   The file to write to.
+     * @param width  Width of the image in pixels.
+     * @param height Height of the image in pixels.
+     * @throws IOException If the file cannot be created.
+     */
+    public PngWriter(File file, int width, int height) throws IOException
+    {
+        this.width = width;
+        this.height = height;
+        // One filter type byte, then three bytes per pixel
+        this.rowBuffer = new byte[1 + width * 3];
+
+        this.fileStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IDAT_CHUNK_SIZE));
+        this.fileStream.write(PNG_SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerStream = new DataOutputStream(header);
+        headerStream.writeInt(width);
+        headerStream.writeInt(height);
+        headerStream.writeByte(8); // Bit depth
+        headerStream.writeByte(2); // Color type: RGB
+        headerStream.writeByte(0); // Compression method: deflate
+        headerStream.writeByte(0); // Filter method: adaptive
+        headerStream.writeByte(0); // Interlace method: none
+        writeChunk(this.fileStream, "IHDR", header.toByteArray(), header.size());
+
+        this.idatStream = new IdatOutputStream();
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.deflaterStream = new DeflaterOutputStream(this.idatStream, this.deflater, IDAT_CHUNK_SIZE);
+    }
+
+    /**
+     * Writes the next row of the image.
+     * @param rgb    Array holding the pixels of the row as 0xRRGGBB.
+     * @param offset Position of the first pixel of the row in the array.
+     * @throws IOException If the row cannot be written.
+     */
+    public void writeRow(int[] rgb, int offset) throws IOException
+    {
+        if (rowsWritten >= height)
+        {
+            throw new IllegalStateException("All " + height + " rows have already been written");
+        }
+
+        // Filter type 1 (Sub) stores the difference with the pixel to the
+        // left, which compresses the large areas of equal color well
+        rowBuffer[0] = 1;
+        int previous = 0;
+        int pos = 1;
+        for (int i = 0; i < width; i++)
+        {
+            int color = rgb[offset + i];
+            rowBuffer[pos++] = (byte) ((color >> 16) - (previous >> 16));
+            rowBuffer[pos++] = (byte) ((color >> 8) - (previous >> 8));
+            rowBuffer[pos++] = (byte) (color - previous);
+            previous = color;
+        }
+        deflaterStream.write(rowBuffer, 0, rowBuffer.length);
+        rowsWritten++;
+    }
+
+    /**
+     * Finishes the image and closes the file.
+     * @throws IOException If the image cannot be written, or if not all rows
+     * have been written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (rowsWritten != height)
+            {
+                throw new IOException("Only " + rowsWritten + " out of " + height + " rows were written");
+            }
+            deflaterStream.finish();
+            idatStream.flushChunk();
+            writeChunk(fileStream, "IEND", new byte[0], 0);
+        } finally
+        {
+            deflater.end();
+            fileStream.close();
+        }
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException
+    {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Buffers compressed image data and writes it to the file as IDAT chunks.
+     */
+    private class IdatOutputStream extends OutputStream
+    {
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int size = 0;
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            if (size == buffer.length)
+            {
+                flushChunk();
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            while (length > 0)
+            {
+                if (size == buffer.length)
+                {
+                    flushChunk();
+                }
+                int toCopy = Math.min(length, buffer.length - size);
+                System.arraycopy(bytes, offset, buffer, size, toCopy);
+                size += toCopy;
+                offset += toCopy;
+                length -= toCopy;
+            }
+        }
+
+        void flushChunk() throws IOException
+        {
+            if (size > 0)
+            {
+                writeChunk(fileStream, "IDAT", buffer, size);
+                size = 0;
+            }
+        }
+    }
+}
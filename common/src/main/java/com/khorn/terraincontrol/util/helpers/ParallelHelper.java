@@ -0,0 +1,112 @@
+package com.khorn.terraincontrol.util.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs independent tasks on a shared pool of daemon threads, one thread per
+ * core. Used for work that is done once in a while but is large enough to be
+ * worth spreading out, like loading config files.
+ */
+public final class ParallelHelper
+{
+    private static ExecutorService executor;
+
+    private static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+            {
+                private int count = 0;
+
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "OTG worker " + (++count));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Runs all tasks and waits for them to complete. When there are less
+     * than two tasks, or when called from one of the worker threads, the
+     * tasks are run on the current thread instead.
+     *
+     * @param tasks The tasks.
+     * @return The results of the tasks, in the same order as the tasks.
+     * @throws RuntimeException If one of the tasks threw an exception. The
+     *             remaining tasks are still completed.
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks)
+    {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.size() < 2 || Thread.currentThread().getName().startsWith("OTG worker "))
+        {
+            // Not worth it, or would risk a deadlock
+            for (Callable<T> task : tasks)
+            {
+                try
+                {
+                    results.add(task.call());
+                } catch (RuntimeException e)
+                {
+                    throw e;
+                } catch (Exception e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+            return results;
+        }
+
+        List<Future<T>> futures;
+        try
+        {
+            futures = getExecutor().invokeAll(tasks);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        for (Future<T> future : futures)
+        {
+            try
+            {
+                results.add(future.get());
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+        return results;
+    }
+
+    private ParallelHelper()
+    {
+    }
+}
@@ -1,5 +1,7 @@
 package com.khorn.terraincontrol.util.helpers;
 
+import com.khorn.terraincontrol.util.FastRandom;
+
 import java.util.Random;
 
 /**
@@ -8,6 +10,15 @@ import java.util.Random;
  */
 public class RandomHelper
 {
+    private static final ThreadLocal<FastRandom> POOLED_RANDOM = new ThreadLocal<FastRandom>()
+    {
+        @Override
+        protected FastRandom initialValue()
+        {
+            return new FastRandom();
+        }
+    };
+
     /**
      * Gets a Random generator with a random seed. However, the same input
      * will always produce the same output.
@@ -19,7 +30,27 @@ public class RandomHelper
      */
     public static Random getRandomForCoords(int x, int z, long seed)
     {
-        Random random = new Random();
+        return setSeedForCoords(new FastRandom(), x, z, seed);
+    }
+
+    /**
+     * Same as {@link #getRandomForCoords(int, int, long)}, but reuses a
+     * random generator of the current thread instead of creating a new one.
+     * The generator may only be used until the next call to this method on
+     * the same thread, so it must never be stored.
+     * 
+     * @param x    X-coord to start with.
+     * @param z    Z-coord to start with.
+     * @param seed Seed to start with.
+     * @return A random generator with a random seed.
+     */
+    public static Random getPooledRandomForCoords(int x, int z, long seed)
+    {
+        return setSeedForCoords(POOLED_RANDOM.get(), x, z, seed);
+    }
+
+    private static Random setSeedForCoords(Random random, int x, int z, long seed)
+    {
         random.setSeed(seed);
         long l1 = random.nextLong() + 1L;
         long l2 = random.nextLong() + 1L;
@@ -0,0 +1,114 @@
+package com.khorn.terraincontrol.generator.noise;
+
+import static org.junit.Assert.assertEquals;
+
+import com.khorn.terraincontrol.util.helpers.MathHelper;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks that {@link NoiseGeneratorPerlinOctaves#Noise3D} produces exactly
+ * the same values as adding every octave separately with
+ * {@link NoiseGeneratorPerlin#populateNoiseArray3D}, like terrain
+ * generation used to do.
+ */
+public class NoiseGeneratorPerlinOctavesTest
+{
+    private static final long[] SEEDS = {0L, 1L, -1234567890123L, 8675309L};
+
+    /**
+     * The old implementation of Noise3D, which calls every octave
+     * separately.
+     */
+    private static double[] perOctaveNoise3D(long seed, int numOctaves, int xOffset, int yOffset, int zOffset, int xSize, int ySize, int zSize, double xScale, double yScale, double zScale)
+    {
+        Random random = new Random(seed);
+        NoiseGeneratorPerlin[] octaves = new NoiseGeneratorPerlin[numOctaves];
+        for (int i = 0; i < numOctaves; i++)
+        {
+            octaves[i] = new NoiseGeneratorPerlin(random);
+        }
+
+        double[] doubleArray = new double[xSize * ySize * zSize];
+        double d3 = 1.0D;
+        for (int l1 = 0; l1 < numOctaves; ++l1)
+        {
+            double d4 = (double) xOffset * d3 * xScale;
+            double d5 = (double) yOffset * d3 * yScale;
+            double d6 = (double) zOffset * d3 * zScale;
+            long i2 = MathHelper.floor_double_long(d4);
+            long j2 = MathHelper.floor_double_long(d6);
+
+            d4 -= (double) i2;
+            d6 -= (double) j2;
+            i2 %= 16777216L;
+            j2 %= 16777216L;
+            d4 += (double) i2;
+            d6 += (double) j2;
+            octaves[l1].populateNoiseArray3D(doubleArray, d4, d5, d6, xSize, ySize, zSize, xScale * d3, yScale * d3, zScale * d3, d3);
+            d3 /= 2.0D;
+        }
+        return doubleArray;
+    }
+
+    private static void assertBitIdentical(long seed, int numOctaves, int xOffset, int yOffset, int zOffset, int xSize, int ySize, int zSize, double xScale, double yScale, double zScale)
+    {
+        double[] expected = perOctaveNoise3D(seed, numOctaves, xOffset, yOffset, zOffset, xSize, ySize, zSize, xScale, yScale, zScale);
+        NoiseGeneratorPerlinOctaves generator = new NoiseGeneratorPerlinOctaves(new Random(seed), numOctaves);
+        double[] actual = generator.Noise3D(null, xOffset, yOffset, zOffset, xSize, ySize, zSize, xScale, yScale, zScale);
+
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals("Seed " + seed + ", octaves " + numOctaves + ", offset " + xOffset + "," + yOffset + "," + zOffset + ", index " + i,
+                    Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]));
+        }
+    }
+
+    @Test
+    public void testTerrainNoise()
+    {
+        // Sizes and scales used by ChunkProviderTC
+        int[][] offsets = {{0, 0, 0}, {4, 0, -8}, {-1204, 0, 32768}, {-4, 0, -4}, {5000000, 0, -5000000}};
+        for (long seed : SEEDS)
+        {
+            for (int[] offset : offsets)
+            {
+                assertBitIdentical(seed, 16, offset[0], offset[1], offset[2], 5, 33, 5, 684.412D, 684.412D, 684.412D);
+                assertBitIdentical(seed, 8, offset[0], offset[1], offset[2], 5, 33, 5, 8.555150000000001D, 4.277575000000001D, 8.555150000000001D);
+                // Single columns, for the noise column cache
+                assertBitIdentical(seed, 16, offset[0] + 3, offset[1], offset[2] + 2, 1, 33, 1, 684.412D, 684.412D, 684.412D);
+            }
+        }
+    }
+
+    @Test
+    public void testOtherSizes()
+    {
+        for (long seed : SEEDS)
+        {
+            assertBitIdentical(seed, 1, 3, 7, -11, 1, 1, 1, 1.0D, 1.0D, 1.0D);
+            assertBitIdentical(seed, 4, -17, 3, 29, 16, 128, 16, 0.03125D, 0.0625D, 0.03125D);
+            assertBitIdentical(seed, 10, 100, -50, 7, 9, 17, 3, 171.103D, 2.5D, 171.103D);
+        }
+    }
+
+    @Test
+    public void testReusedTables()
+    {
+        // The tables are kept between calls, so smaller requests after
+        // bigger ones must give the same result as on a new generator
+        for (long seed : SEEDS)
+        {
+            NoiseGeneratorPerlinOctaves generator = new NoiseGeneratorPerlinOctaves(new Random(seed), 8);
+            generator.Noise3D(null, 0, 0, 0, 16, 128, 16, 1.0D, 1.0D, 1.0D);
+            double[] actual = generator.Noise3D(null, 12, 0, -4, 5, 33, 5, 684.412D, 684.412D, 684.412D);
+            double[] expected = perOctaveNoise3D(seed, 8, 12, 0, -4, 5, 33, 5, 684.412D, 684.412D, 684.412D);
+            for (int i = 0; i < expected.length; i++)
+            {
+                assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]));
+            }
+        }
+    }
+}
@@ -14,10 +14,12 @@ import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
 import com.khorn.terraincontrol.customobjects.CustomObjectStructureCache;
 import com.khorn.terraincontrol.customobjects.bo3.EntityFunction;
 import com.khorn.terraincontrol.exception.BiomeNotFoundException;
+import com.khorn.terraincontrol.generator.PopulationHeightCache;
 import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 import com.khorn.terraincontrol.util.helpers.ReflectionHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
@@ -25,6 +27,7 @@ import com.khorn.terraincontrol.util.minecraftTypes.TreeType;
 
 import net.minecraft.server.v1_10_R1.BiomeBase;
 import net.minecraft.server.v1_10_R1.Block;
+import net.minecraft.server.v1_10_R1.BlockFalling;
 import net.minecraft.server.v1_10_R1.BlockLeaves;
 import net.minecraft.server.v1_10_R1.BlockLeaves1;
 import net.minecraft.server.v1_10_R1.BlockLog1;
@@ -152,6 +155,14 @@ public class BukkitWorld implements LocalWorld
     private WorldGenTaiga2 taigaTree2;
 
     private Chunk[] chunkCache;
+    private final PopulationHeightCache heightCache = new PopulationHeightCache(this);
+    private int populationBlockCount;
+    // Chunks being populated that were changed using chunk.a(..), which
+    // marks them as modified. Indexed like chunkCache.
+    private final boolean[] modifiedChunks = new boolean[4];
+
+    // Light updates that are postponed until the end of the population step
+    private final Set<BlockPosition> pendingLightChecks = new LinkedHashSet<BlockPosition>();
 
     public BukkitWorld(String _name)
     {
@@ -264,18 +275,27 @@ public class BukkitWorld implements LocalWorld
     @Override
     public boolean placeDungeon(Random rand, int x, int y, int z)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         return dungeon.generate(world, rand, new BlockPosition(x, y, z));
     }
 
     @Override
     public boolean placeFossil(Random rand, ChunkCoordinate chunkCoord)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         return fossil.generate(world, rand, new BlockPosition(chunkCoord.getBlockX(), 0, chunkCoord.getBlockZ()));
     }
 
     @Override
     public boolean placeTree(TreeType type, Random rand, int x, int y, int z)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         BlockPosition blockPos = new BlockPosition(x, y, z);
         switch (type)
         {
@@ -328,6 +348,9 @@ public class BukkitWorld implements LocalWorld
     @Override
     public boolean placeDefaultStructures(Random random, ChunkCoordinate chunkCoord)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         ChunkCoordIntPair chunkIntPair = new ChunkCoordIntPair(chunkCoord.getChunkX(), chunkCoord.getChunkZ());
         WorldConfig worldConfig = this.settings.getWorldConfig();
         boolean villageGenerated = false;
@@ -457,6 +480,11 @@ public class BukkitWorld implements LocalWorld
     @Override
     public int getLiquidHeight(int x, int z)
     {
+        if (this.heightCache.contains(x, z))
+        {
+            return this.heightCache.getLiquidHeight(x, z);
+        }
+        
         for (int y = getHighestBlockYAt(x, z) - 1; y > 0; y--)
         {
             LocalMaterialData material = getMaterial(x, y, z);
@@ -475,6 +503,11 @@ public class BukkitWorld implements LocalWorld
     @Override
     public int getSolidHeight(int x, int z)
     {
+        if (this.heightCache.contains(x, z))
+        {
+            return this.heightCache.getSolidHeight(x, z);
+        }
+        
         for (int y = getHighestBlockYAt(x, z) - 1; y > 0; y--)
         {
             LocalMaterialData material = getMaterial(x, y, z);
@@ -549,9 +582,23 @@ public class BukkitWorld implements LocalWorld
                 return;
             }
 
+            this.heightCache.onBlockSet(x, y, z);
+            this.populationBlockCount++;
+
+            int populatingChunkIndex = getPopulatingChunkIndex(x, z);
+            if (populatingChunkIndex != -1)
+            {
+                this.modifiedChunks[populatingChunkIndex] = true;
+            }
+
             if (blockData.c() != oldBlockData.c() || blockData.d() != oldBlockData.d())
             {
-                if (isSafeForLightUpdates(chunk, x, z))
+                if (populatingChunkIndex != -1)
+                {
+                    // Relight once in endPopulation, a block is often
+                    // changed multiple times while populating
+                    this.pendingLightChecks.add(blockPos);
+                } else if (isSafeForLightUpdates(chunk, x, z))
                 {
                     // Relight
                     world.methodProfiler.a("checkLight");
@@ -575,6 +622,66 @@ public class BukkitWorld implements LocalWorld
         }
     }
 
+    @Override
+    public boolean replaceSourceBlock(int x, int y, int z, LocalMaterialData material, MaterialSet sourceBlocks)
+    {
+        int populatingChunkIndex = getPopulatingChunkIndex(x, z);
+        if (populatingChunkIndex == -1 || !this.modifiedChunks[populatingChunkIndex]
+                || y < TerrainControl.WORLD_DEPTH || y >= TerrainControl.WORLD_HEIGHT)
+        {
+            // Not in the chunks being populated, or the chunk still needs to
+            // be marked as modified: use the normal path
+            return replaceSourceBlockSlow(x, y, z, material, sourceBlocks);
+        }
+
+        Chunk chunk = this.chunkCache[populatingChunkIndex];
+        ChunkSection section = chunk.getSections()[y >> 4];
+        if (section == null)
+        {
+            // Section full of air, Minecraft needs to create it
+            return replaceSourceBlockSlow(x, y, z, material, sourceBlocks);
+        }
+
+        IBlockData oldBlockData = section.getType(x & 0xF, y & 0xF, z & 0xF);
+        if (!sourceBlocks.contains(BukkitMaterialData.ofMinecraftBlockData(oldBlockData)))
+        {
+            return false;
+        }
+
+        IBlockData blockData = ((BukkitMaterialData) material).internalBlock();
+        if (oldBlockData == blockData)
+        {
+            return true;
+        }
+        if (blockData.c() != oldBlockData.c() || blockData.d() != oldBlockData.d()
+                || blockData.getBlock() instanceof ITileEntity || oldBlockData.getBlock() instanceof ITileEntity
+                || blockData.getBlock() instanceof BlockFalling)
+        {
+            // Lighting, height map or tile entities need updating, or the
+            // block must schedule its fall tick in onPlace (gravel and sand
+            // veins)
+            setBlock(x, y, z, material);
+            return true;
+        }
+
+        // Same light behaviour, so only the client needs to know
+        section.setType(x & 0xF, y & 0xF, z & 0xF, blockData);
+        this.heightCache.onBlockSet(x, y, z);
+        this.populationBlockCount++;
+        world.notifyAndUpdatePhysics(new BlockPosition(x, y, z), chunk, oldBlockData, blockData, 2);
+        return true;
+    }
+
+    private boolean replaceSourceBlockSlow(int x, int y, int z, LocalMaterialData material, MaterialSet sourceBlocks)
+    {
+        if (!sourceBlocks.contains(getMaterial(x, y, z)))
+        {
+            return false;
+        }
+        setBlock(x, y, z, material);
+        return true;
+    }
+
     /**
      * When a light update hits an unloaded chunk, Minecraft unfortunately
      * attempts to generate this chunk. When this happens, two chunks will be
@@ -602,13 +709,20 @@ public class BukkitWorld implements LocalWorld
     @Override
     public int getHighestBlockYAt(int x, int z)
     {
+        int cachedY = this.heightCache.getHighestBlockY(x, z);
+        if (cachedY != PopulationHeightCache.UNKNOWN)
+        {
+            return cachedY;
+        }
+
         Chunk chunk = this.getChunk(x, 0, z);
         if (chunk == null)
         {
             return -1;
         }
 
-        int y = chunk.b(x & 0xf, z & 0xf);
+        int heightMapY = chunk.b(x & 0xf, z & 0xf);
+        int y = heightMapY;
 
         // Fix for incorrect light map
         boolean incorrectHeightMap = false;
@@ -623,6 +737,7 @@ public class BukkitWorld implements LocalWorld
             world.w(new BlockPosition(x, y, z)); // world.relight
         }
 
+        this.heightCache.setHighestBlockY(x, z, y, heightMapY);
         return y;
     }
 
@@ -638,8 +753,17 @@ public class BukkitWorld implements LocalWorld
                     + " disable this error.");
         }
 
+        if (this.chunkCache != null)
+        {
+            // Finish the chunk that was being populated
+            flushLightChecks(this.chunkCache);
+        }
+
         // Initialize cache
         this.chunkCache = loadFourChunks(chunkCoord);
+        this.heightCache.enable(chunkCoord);
+        this.populationBlockCount = 0;
+        Arrays.fill(this.modifiedChunks, false);
     }
 
     private Chunk[] getChunkCache(ChunkCoordinate topLeft)
@@ -688,7 +812,73 @@ public class BukkitWorld implements LocalWorld
                     + " PopulationBoundsCheck to false in the WorldConfig to"
                     + " disable this error.");
         }
+
+        Chunk[] populatedChunks = this.chunkCache;
         this.chunkCache = null;
+        this.heightCache.disable();
+
+        if (populatedChunks != null)
+        {
+            flushLightChecks(populatedChunks);
+        }
+    }
+
+    @Override
+    public int getPopulationBlockCount()
+    {
+        return this.populationBlockCount;
+    }
+
+    /**
+     * Gets the index in {@link #chunkCache} of the chunk the given block is
+     * in.
+     * @param x Block x in the world.
+     * @param z Block z in the world.
+     * @return The index, or -1 if no chunk is being populated or if the
+     * block is outside the chunks being populated.
+     */
+    private int getPopulatingChunkIndex(int x, int z)
+    {
+        if (this.chunkCache == null)
+        {
+            return -1;
+        }
+
+        int indexX = (x >> 4) - this.chunkCache[0].locX;
+        int indexZ = (z >> 4) - this.chunkCache[0].locZ;
+        if ((indexX == 0 || indexX == 1) && (indexZ == 0 || indexZ == 1))
+        {
+            return indexX | (indexZ << 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Performs the light updates that were postponed while populating.
+     * @param populatedChunks The chunks that were populated, indexed like
+     * {@link #chunkCache}.
+     */
+    private void flushLightChecks(Chunk[] populatedChunks)
+    {
+        if (this.pendingLightChecks.isEmpty())
+        {
+            return;
+        }
+
+        Chunk topLeftChunk = populatedChunks[0];
+        world.methodProfiler.a("checkLight");
+        for (BlockPosition blockPos : this.pendingLightChecks)
+        {
+            int indexX = (blockPos.getX() >> 4) - topLeftChunk.locX;
+            int indexZ = (blockPos.getZ() >> 4) - topLeftChunk.locZ;
+            Chunk chunk = populatedChunks[indexX | (indexZ << 1)];
+            if (isSafeForLightUpdates(chunk, blockPos.getX(), blockPos.getZ()))
+            {
+                world.w(blockPos); // world.relight
+            }
+        }
+        world.methodProfiler.b();
+        this.pendingLightChecks.clear();
     }
 
     @Override
@@ -769,6 +959,24 @@ public class BukkitWorld implements LocalWorld
         this.settings.reload();
     }
 
+    /**
+     * Loads only the biomes whose files were changed from disk. Falls back
+     * to loading all settings if needed.
+     *
+     * @return The names of the reloaded biomes, or null if all settings were
+     * reloaded.
+     * @see ServerConfigProvider#reloadChangedBiomes()
+     */
+    public Collection<String> reloadChangedSettings()
+    {
+        Collection<String> reloadedBiomes = this.settings.reloadChangedBiomes();
+        if (reloadedBiomes == null)
+        {
+            reloadSettings();
+        }
+        return reloadedBiomes;
+    }
+
     /**
      * Enables/reloads this BukkitWorld. If you are reloading, don't forget to
      * set the new settings first using {@link #setSettings(ServerConfigProvider)}.
@@ -7,6 +7,7 @@ public enum TCPerm
     CMD_CHECK("cmd.check"),
     CMD_HELP("cmd.help"),
     CMD_LIST("cmd.list"),
+    CMD_LOCATE("cmd.locate"),
     CMD_MAP("cmd.map"),
     CMD_RELOAD("cmd.reload"),
     CMD_SPAWN("cmd.spawn");
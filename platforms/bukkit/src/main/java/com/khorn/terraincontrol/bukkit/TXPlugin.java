@@ -10,6 +10,7 @@ import com.khorn.terraincontrol.bukkit.generator.structures.TXVillageGen.Village
 import com.khorn.terraincontrol.bukkit.metrics.BukkitMetricsHelper;
 import com.khorn.terraincontrol.configuration.ServerConfigProvider;
 import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
+import com.khorn.terraincontrol.customobjects.SharedCustomObjects;
 import com.khorn.terraincontrol.generator.biome.VanillaBiomeGenerator;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.minecraftTypes.StructureNames;
@@ -50,6 +51,7 @@ public class TXPlugin extends JavaPlugin
             for (BukkitWorld world : worlds.values())
             {
                 world.disable();
+                SharedCustomObjects.release(world.getConfigs().getCustomObjects());
             }
             worlds.clear();
 
@@ -196,7 +198,9 @@ public class TXPlugin extends JavaPlugin
         if (this.worlds.containsKey(world.getName()))
         {
             // Disable and Remove the world from enabled list
-            this.worlds.get(world.getName()).disable();
+            BukkitWorld bukkitWorld = this.worlds.get(world.getName());
+            bukkitWorld.disable();
+            SharedCustomObjects.release(bukkitWorld.getConfigs().getCustomObjects());
             this.worlds.remove(world.getName());
         }
         // Show message
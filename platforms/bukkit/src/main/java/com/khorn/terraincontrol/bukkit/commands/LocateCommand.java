@@ -0,0 +1,128 @@
+package com.khorn.terraincontrol.bukkit.commands;
+
+import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.bukkit.TCPerm;
+import com.khorn.terraincontrol.bukkit.TXPlugin;
+import com.khorn.terraincontrol.generator.biome.BiomeLocator;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+public class LocateCommand extends BaseCommand
+{
+    public LocateCommand(TXPlugin _plugin)
+    {
+        super(_plugin);
+        name = "locate";
+        perm = TCPerm.CMD_LOCATE.node;
+        usage = "locate biome <biome name> [-r radius] or locate cancel";
+        workOnConsole = false;
+    }
+
+    @Override
+    public boolean onCommand(final CommandSender sender, List<String> args)
+    {
+        if (args.size() == 1 && args.get(0).equals("cancel"))
+        {
+            if (!BiomeLocator.cancelRunning())
+            {
+                sender.sendMessage(ERROR_COLOR + "No biome search is running.");
+            }
+            return true;
+        }
+
+        if (args.size() < 2 || !args.get(0).equals("biome"))
+        {
+            sender.sendMessage(ERROR_COLOR + "Usage: /otg " + usage);
+            return true;
+        }
+
+        Location location = this.getLocation(sender);
+        LocalWorld world = this.getWorld(sender, "");
+        if (location == null || world == null)
+        {
+            sender.sendMessage(ERROR_COLOR + "Plugin is not enabled for this world.");
+            return true;
+        }
+        if (!BiomeLocator.canLocate(world))
+        {
+            sender.sendMessage(ERROR_COLOR + "Biomes can only be located in worlds that use the Normal, BeforeGroups or FromImage biome mode.");
+            return true;
+        }
+
+        // Biome names may contain spaces
+        String biomeName = "";
+        int radius = 10000;
+        try
+        {
+            for (int i = 1; i < args.size(); i++)
+            {
+                if (args.get(i).equals("-r"))
+                {
+                    radius = Integer.parseInt(args.get(++i));
+                } else
+                {
+                    biomeName += (biomeName.length() == 0 ? "" : " ") + args.get(i);
+                }
+            }
+        } catch (RuntimeException e) // NumberFormatException or IndexOutOfBoundsException
+        {
+            sender.sendMessage(ERROR_COLOR + "Usage: /otg " + usage);
+            return true;
+        }
+
+        LocalBiome biome = world.getBiomeByNameOrNull(biomeName);
+        if (biome == null)
+        {
+            sender.sendMessage(ERROR_COLOR + "Biome \"" + biomeName + "\" does not exist in this world.");
+            return true;
+        }
+
+        final String foundBiomeName = biome.getName();
+        BiomeLocator locator = new BiomeLocator(world, biome.getIds().getGenerationId(), location.getBlockX(), location.getBlockZ(), radius,
+                Runtime.getRuntime().availableProcessors() - 1);
+        boolean started = locator.start(new BiomeLocator.Listener()
+        {
+            @Override
+            public void onProgress(int radius, int percentage)
+            {
+                sender.sendMessage(MESSAGE_COLOR + "Searched " + VALUE_COLOR + radius + MESSAGE_COLOR + " blocks (" + VALUE_COLOR + percentage + "%" + MESSAGE_COLOR + ")");
+            }
+
+            @Override
+            public void onFound(int x, int z, int distance, long timeMillis)
+            {
+                sender.sendMessage(MESSAGE_COLOR + "Found " + VALUE_COLOR + foundBiomeName + MESSAGE_COLOR + " at " + VALUE_COLOR + x + ", " + z
+                        + MESSAGE_COLOR + " (" + VALUE_COLOR + distance + MESSAGE_COLOR + " blocks away) in " + VALUE_COLOR + (timeMillis / 1000)
+                        + MESSAGE_COLOR + " seconds.");
+            }
+
+            @Override
+            public void onNotFound(int radius)
+            {
+                sender.sendMessage(ERROR_COLOR + "Could not find " + foundBiomeName + " within " + radius + " blocks.");
+            }
+
+            @Override
+            public void onCancelled()
+            {
+                sender.sendMessage(MESSAGE_COLOR + "Biome search cancelled.");
+            }
+
+            @Override
+            public void onFailed(Exception e)
+            {
+                sender.sendMessage(ERROR_COLOR + "Biome search failed: " + e.getLocalizedMessage());
+            }
+        });
+        if (!started)
+        {
+            sender.sendMessage(ERROR_COLOR + "Another biome search is already running. Use /otg locate cancel to stop it.");
+            return true;
+        }
+        sender.sendMessage(MESSAGE_COLOR + "Searching for " + VALUE_COLOR + foundBiomeName + MESSAGE_COLOR + "...");
+        return true;
+    }
+}
@@ -1,14 +1,18 @@
 package com.khorn.terraincontrol.bukkit.commands;
 
+import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.bukkit.TCPerm;
 import com.khorn.terraincontrol.bukkit.TXPlugin;
 import com.khorn.terraincontrol.bukkit.commands.runnable.MapWriter;
+import com.khorn.terraincontrol.bukkit.util.WorldHelper;
+import com.khorn.terraincontrol.generator.biome.BiomeMapExporter;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.craftbukkit.v1_10_R1.CraftWorld;
 import org.bukkit.entity.Player;
 
+import java.io.File;
 import java.util.List;
 
 public class MapCommand extends BaseCommand
@@ -109,10 +113,54 @@ public class MapCommand extends BaseCommand
         }
 
 
+        LocalWorld localWorld = WorldHelper.toLocalWorld(world.getHandle());
+        if (localWorld != null && BiomeMapExporter.canExport(localWorld))
+        {
+            // Read the biomes straight from the biome generator, off the main thread
+            exportMap(sender, localWorld, size, angle, offsetX, offsetZ, label);
+            return true;
+        }
+
         MapWriter map = new MapWriter(world.getHandle(), size, angle, sender, offsetX, offsetZ, label);
 
         this.plugin.getServer().getScheduler().runTask(this.plugin, map);
 
         return true;
     }
+
+    private void exportMap(final CommandSender sender, LocalWorld world, int size, MapWriter.Angle angle, int offsetX, int offsetZ, String label)
+    {
+        if (MapWriter.isWorking || BiomeMapExporter.isWorking())
+        {
+            sender.sendMessage(ERROR_COLOR + "Another instance of map writer is running");
+            return;
+        }
+
+        File biomeFile = new File(label + world.getName() + "_biome.png");
+        File temperatureFile = new File(label + world.getName() + "_temperature.png");
+        BiomeMapExporter exporter = new BiomeMapExporter(world, size, BiomeMapExporter.Angle.valueOf(angle.name()), offsetX, offsetZ,
+                biomeFile, temperatureFile, Runtime.getRuntime().availableProcessors() - 1);
+
+        sender.sendMessage(MESSAGE_COLOR + "Generating map...");
+        exporter.start(new BiomeMapExporter.Listener()
+        {
+            @Override
+            public void onProgress(int percentage)
+            {
+                sender.sendMessage(MESSAGE_COLOR + percentage + "%");
+            }
+
+            @Override
+            public void onFinished(long timeMillis)
+            {
+                sender.sendMessage(MESSAGE_COLOR + "Done");
+            }
+
+            @Override
+            public void onFailed(Exception e)
+            {
+                sender.sendMessage(ERROR_COLOR + "Exception while writing images: " + e.getLocalizedMessage());
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import com.khorn.terraincontrol.logging.LogMarker;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.Collection;
 import java.util.List;
 
 public class ReloadCommand extends BaseCommand
@@ -18,13 +19,16 @@ public class ReloadCommand extends BaseCommand
         super(_plugin);
         name = "reload";
         perm = TCPerm.CMD_RELOAD.node;
-        usage = "reload [world_name]";
+        usage = "reload [world_name] [-full]";
         workOnConsole = true;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, List<String> args)
     {
+        // By default, only the changed biomes are reloaded
+        boolean reloadAll = args.remove("-full");
+
         BukkitWorld world = (BukkitWorld) this.getWorld(sender, args.size() > 0 ? args.get(0) : "");
         if (world == null)
         {
@@ -32,9 +36,26 @@ public class ReloadCommand extends BaseCommand
             return false;
         }
 
-        world.reloadSettings();
+        Collection<String> reloadedBiomes = null;
+        if (reloadAll)
+        {
+            world.reloadSettings();
+        } else
+        {
+            reloadedBiomes = world.reloadChangedSettings();
+        }
 
-        sender.sendMessage(MESSAGE_COLOR + "Configs for world '" + world.getName() + "' reloaded");
+        if (reloadedBiomes == null)
+        {
+            sender.sendMessage(MESSAGE_COLOR + "Configs for world '" + world.getName() + "' reloaded");
+        } else if (reloadedBiomes.isEmpty())
+        {
+            sender.sendMessage(MESSAGE_COLOR + "No changed configs found for world '" + world.getName() + "'");
+        } else
+        {
+            sender.sendMessage(MESSAGE_COLOR + "Reloaded " + reloadedBiomes.size() + " biomes in world '" + world.getName() + "': "
+                    + VALUE_COLOR + reloadedBiomes);
+        }
         if (sender instanceof Player)
         {
             TerrainControl.log(LogMarker.INFO, "{} reloaded the config files for world '{}'.", new Object[]
@@ -54,6 +54,7 @@ public class TXCommandExecutor implements CommandExecutor
         this.AddCommand(new BiomeCommand(plugin));
         this.AddCommand(new SpawnCommand(plugin));
         this.AddCommand(new MapCommand(plugin));
+        this.AddCommand(new LocateCommand(plugin));
         this.AddCommand(this.helpCommand);
     }
 
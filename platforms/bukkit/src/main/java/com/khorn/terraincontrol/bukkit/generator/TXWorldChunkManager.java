@@ -1,15 +1,20 @@
 package com.khorn.terraincontrol.bukkit.generator;
 
+import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.bukkit.BukkitBiome;
 import com.khorn.terraincontrol.bukkit.BukkitWorld;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.generator.biome.OutputType;
+import com.khorn.terraincontrol.generator.biome.UnzoomedBiomeCache;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
 import net.minecraft.server.v1_10_R1.BiomeBase;
 import net.minecraft.server.v1_10_R1.BlockPosition;
 import net.minecraft.server.v1_10_R1.WorldChunkManager;
 import net.minecraft.server.v1_10_R1.WorldGenVillage;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -19,13 +24,28 @@ import java.util.Random;
  */
 public class TXWorldChunkManager extends WorldChunkManager
 {
+    /**
+     * Maximum amount of compiled biome lists. Minecraft only uses a few
+     * lists, but plugins may create a new list for every call.
+     */
+    private static final int MAX_ALLOWED_LISTS = 32;
+
     private BukkitWorld localWorld;
     private BiomeGenerator biomeGenerator;
+    private final UnzoomedBiomeCache unzoomedBiomeCache;
+
+    /**
+     * Bit sets of the biome ids in the lists passed to
+     * {@link #a(int, int, int, List)}.
+     */
+    private final Map<List<BiomeBase>, long[]> allowedBiomeIds = new IdentityHashMap<List<BiomeBase>, long[]>();
+    private LocalBiome[] cachedBiomes;
 
     public TXWorldChunkManager(BukkitWorld world, BiomeGenerator biomeGenerator)
     {
         this.localWorld = world;
         this.biomeGenerator = biomeGenerator;
+        this.unzoomedBiomeCache = new UnzoomedBiomeCache(biomeGenerator);
     }
 
     @Override
@@ -91,15 +111,50 @@ public class TXWorldChunkManager extends WorldChunkManager
 
         int n = k - i + 1;
         int i1 = m - j + 1;
-        BiomeBase[] arrayOfInt = this.getBiomes(null, i, j, n, i1);
-        for (int i2 = 0; i2 < n * i1; i2++)
+        return this.unzoomedBiomeCache.containsOnly(i, j, n, i1, getAllowedBiomeIds(paramList));
+    }
+
+    /**
+     * Gets the ids of the biomes in the given list. The result is cached
+     * until the biomes of the world are reloaded.
+     * @param allowed The list of biomes.
+     * @return Bit set of the biome ids.
+     */
+    private long[] getAllowedBiomeIds(List<BiomeBase> allowed)
+    {
+        synchronized (this.allowedBiomeIds)
         {
-            BiomeBase localBiomeBase = arrayOfInt[i2];
-            if (!paramList.contains(localBiomeBase))
-                return false;
+            LocalBiome[] biomes = this.localWorld.getConfigs().getBiomeArray();
+            if (biomes != this.cachedBiomes)
+            {
+                // Biomes were reloaded
+                this.allowedBiomeIds.clear();
+                this.unzoomedBiomeCache.clear();
+                this.cachedBiomes = biomes;
+            }
+
+            long[] biomeIds = this.allowedBiomeIds.get(allowed);
+            if (biomeIds == null)
+            {
+                int maxBiomesCount = this.localWorld.getMaxBiomesCount();
+                biomeIds = new long[(maxBiomesCount + 63) >> 6];
+                for (int id = 0; id < maxBiomesCount; id++)
+                {
+                    BukkitBiome biome = (BukkitBiome) this.localWorld.getBiomeByIdOrNull(id);
+                    if (biome != null && allowed.contains(biome.getHandle()))
+                    {
+                        biomeIds[id >> 6] |= 1L << id;
+                    }
+                }
+
+                if (this.allowedBiomeIds.size() >= MAX_ALLOWED_LISTS)
+                {
+                    this.allowedBiomeIds.clear();
+                }
+                this.allowedBiomeIds.put(allowed, biomeIds);
+            }
+            return biomeIds;
         }
-
-        return true;
     }
 
     @Override
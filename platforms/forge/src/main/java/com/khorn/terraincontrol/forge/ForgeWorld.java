@@ -11,14 +11,17 @@ import com.khorn.terraincontrol.customobjects.bo3.EntityFunction;
 import com.khorn.terraincontrol.exception.BiomeNotFoundException;
 import com.khorn.terraincontrol.forge.dimensions.TXDimensionManager;
 import com.khorn.terraincontrol.forge.generator.TXBiome;
+import com.khorn.terraincontrol.forge.generator.TXBiomeProvider;
 import com.khorn.terraincontrol.forge.generator.TXChunkGenerator;
 import com.khorn.terraincontrol.forge.generator.structure.*;
 import com.khorn.terraincontrol.forge.util.MobSpawnGroupHelper;
 import com.khorn.terraincontrol.forge.util.NBTHelper;
+import com.khorn.terraincontrol.generator.PopulationHeightCache;
 import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 import com.khorn.terraincontrol.util.helpers.StringHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
@@ -40,6 +43,8 @@ import net.minecraft.nbt.JsonToNBT;
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTException;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.datafix.DataFixer;
@@ -67,7 +72,9 @@ import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ForgeWorld implements LocalWorld
 {
@@ -86,6 +93,11 @@ public class ForgeWorld implements LocalWorld
     private static final int MAX_SAVED_BIOMES_COUNT = 255;
     private static final int STANDARD_WORLD_HEIGHT = 128;
 
+    /**
+     * Block classes checked by {@link #hasPlacementHooks(Block)}.
+     */
+    private static final Map<Class<?>, Boolean> placementHookCache = new ConcurrentHashMap<Class<?>, Boolean>();
+
     public HashMap<String, LocalBiome> biomeNames = new HashMap<String, LocalBiome>();
 
     public TXStrongholdGen strongholdGen;
@@ -116,6 +128,17 @@ public class ForgeWorld implements LocalWorld
     private WorldGenTaiga2 taigaTree2;
 
     private Chunk[] chunkCache;
+    private boolean reloadingBiomes;
+    private long unloadedSince;
+    private boolean generatorStateReleased;
+    private final PopulationHeightCache heightCache = new PopulationHeightCache(this);
+    private int populationBlockCount;
+
+    // Updates that are postponed until the end of the population step. The
+    // arrays are indexed like chunkCache.
+    private final Set<Long> pendingLightChecks = new LinkedHashSet<Long>();
+    private final boolean[] pendingSkylightChunks = new boolean[4];
+    private final int[] pendingClientSections = new int[4];
 
     public static HashMap<Integer, ResourceLocation> vanillaResouceLocations = new HashMap<Integer, ResourceLocation>();   
     public static Biome[] vanillaBiomes = new Biome[MAX_BIOMES_COUNT];    
@@ -156,6 +179,23 @@ public class ForgeWorld implements LocalWorld
     @Override
     public LocalBiome createBiomeFor(BiomeConfig biomeConfig, BiomeIds biomeIds, ConfigProvider configProvider)
     {  	      	
+        if (this.reloadingBiomes)
+        {
+            // Keep the registered Minecraft biome and its ids, only the
+            // settings are replaced
+            ForgeBiome oldBiome = getBiomeByIdOrNull(biomeIds.getGenerationId());
+            if (oldBiome != null)
+            {
+                if (oldBiome.getHandle() instanceof TXBiome)
+                {
+                    ((TXBiome) oldBiome.getHandle()).reloadSettings(biomeConfig);
+                }
+                ForgeBiome forgeBiome = new ForgeBiome(oldBiome.getHandle(), biomeConfig, oldBiome.getIds());
+                this.biomeNames.put(oldBiome.getName(), forgeBiome);
+                return forgeBiome;
+            }
+        }
+
     	// When creating custom dimensions don't override biomes that already exist in other worlds
         if(!isMainWorld)
         {
@@ -378,18 +418,27 @@ public class ForgeWorld implements LocalWorld
     @Override
     public boolean placeDungeon(Random rand, int x, int y, int z)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         return this.dungeonGen.generate(this.world, rand, new BlockPos(x, y, z));
     }
 
     @Override
     public boolean placeFossil(Random rand, ChunkCoordinate chunkCoord)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         return this.fossilGen.generate(this.world, rand, new BlockPos(chunkCoord.getBlockX(), 0, chunkCoord.getBlockZ()));
     }
 
     @Override
     public boolean placeTree(TreeType type, Random rand, int x, int y, int z)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         BlockPos blockPos = new BlockPos(x, y, z);
         switch (type)
         {
@@ -442,6 +491,9 @@ public class ForgeWorld implements LocalWorld
     @Override
     public boolean placeDefaultStructures(Random rand, ChunkCoordinate chunkCoord)
     {
+        // Vanilla generators bypass setBlock
+        this.heightCache.invalidateAll();
+
         ChunkPos chunkCoordIntPair = new ChunkPos(chunkCoord.getChunkX(), chunkCoord.getChunkZ());
         WorldConfig worldConfig = this.settings.getWorldConfig();
 
@@ -572,6 +624,11 @@ public class ForgeWorld implements LocalWorld
     @Override
     public int getLiquidHeight(int x, int z)
     {
+        if (this.heightCache.contains(x, z))
+        {
+            return this.heightCache.getLiquidHeight(x, z);
+        }
+        
         for (int y = getHighestBlockYAt(x, z) - 1; y > 0; y--)
         {
             LocalMaterialData material = getMaterial(x, y, z);
@@ -590,6 +647,11 @@ public class ForgeWorld implements LocalWorld
     @Override
     public int getSolidHeight(int x, int z)
     {
+        if (this.heightCache.contains(x, z))
+        {
+            return this.heightCache.getSolidHeight(x, z);
+        }
+        
         for (int y = getHighestBlockYAt(x, z) - 1; y > 0; y--)
         {
             LocalMaterialData material = getMaterial(x, y, z);
@@ -686,7 +748,7 @@ public class ForgeWorld implements LocalWorld
         	throw new RuntimeException("Whatever it is you're trying to do, we didn't write any code for it (sorry). Please contact Team OTG about this crash.");
         }
 
-        IBlockState oldState = this.world.getBlockState(pos);
+        IBlockState oldState = chunk.getBlockState(pos);
         int oldLight = oldState.getLightValue(this.world, pos);
         int oldOpacity = oldState.getLightOpacity(this.world, pos);
         
@@ -696,6 +758,25 @@ public class ForgeWorld implements LocalWorld
         {
         	return; // Happens when block to place is the same as block being placed? TODO: Is that the only time this happens?
         }
+
+        this.heightCache.onBlockSet(x, y, z);
+        this.populationBlockCount++;
+
+        int populatingChunkIndex = getPopulatingChunkIndex(x, z);
+        if (populatingChunkIndex != -1)
+        {
+            // Relighting and updating players is done once for all blocks
+            // in endPopulation
+            if (newState.getLightValue(this.world, pos) != oldLight)
+            {
+                this.pendingLightChecks.add(pos.toLong());
+            } else if (newState.getLightOpacity(this.world, pos) != oldOpacity)
+            {
+                this.pendingSkylightChunks[populatingChunkIndex] = true;
+            }
+            this.pendingClientSections[populatingChunkIndex] |= 1 << (y >> 4);
+            return;
+        }
         
         // Relight and update players
         if (newState.getLightOpacity(this.world, pos) != oldOpacity || newState.getLightValue(this.world, pos) != oldLight)
@@ -707,17 +788,116 @@ public class ForgeWorld implements LocalWorld
         
         this.world.markAndNotifyBlock(pos, chunk, iblockstate, newState, 2);       
     }
+
+    @Override
+    public boolean replaceSourceBlock(int x, int y, int z, LocalMaterialData material, MaterialSet sourceBlocks)
+    {
+        int populatingChunkIndex = getPopulatingChunkIndex(x, z);
+        if (populatingChunkIndex == -1 || y < TerrainControl.WORLD_DEPTH || y >= TerrainControl.WORLD_HEIGHT)
+        {
+            // Not in the chunks being populated, use the normal path
+            return replaceSourceBlockSlow(x, y, z, material, sourceBlocks);
+        }
+
+        Chunk chunk = this.chunkCache[populatingChunkIndex];
+        ExtendedBlockStorage section = chunk.getBlockStorageArray()[y >> 4];
+        if (section == null)
+        {
+            // Section full of air, Minecraft needs to create it
+            return replaceSourceBlockSlow(x, y, z, material, sourceBlocks);
+        }
+
+        IBlockState oldState = section.get(x & 0xF, y & 0xF, z & 0xF);
+        if (!sourceBlocks.contains(ForgeMaterialData.ofMinecraftBlockState(oldState)))
+        {
+            return false;
+        }
+
+        IBlockState newState = ((ForgeMaterialData) material).internalBlock();
+        if (oldState == newState)
+        {
+            return true;
+        }
+        if (oldState.getLightOpacity() != newState.getLightOpacity() || oldState.getLightValue() != newState.getLightValue()
+                || oldState.getBlock().hasTileEntity(oldState) || newState.getBlock().hasTileEntity(newState)
+                || hasPlacementHooks(oldState.getBlock()) || hasPlacementHooks(newState.getBlock()))
+        {
+            // Lighting, height map or tile entities need updating, or one
+            // of the blocks reacts to being placed or removed (falling
+            // gravel and sand, flowing liquids)
+            setBlock(x, y, z, material);
+            return true;
+        }
+
+        // Same light behaviour, so there is nothing else to update
+        section.set(x & 0xF, y & 0xF, z & 0xF, newState);
+        chunk.setChunkModified();
+        this.heightCache.onBlockSet(x, y, z);
+        this.populationBlockCount++;
+        this.pendingClientSections[populatingChunkIndex] |= 1 << (y >> 4);
+        return true;
+    }
+
+    /**
+     * Gets whether the block overrides onBlockAdded or breakBlock. Both are
+     * called from Chunk.setBlockState, so such blocks can't be written
+     * directly into the chunk section.
+     * @param block The block.
+     * @return True if the block overrides one of the methods.
+     */
+    private static boolean hasPlacementHooks(Block block)
+    {
+        Class<?> blockClass = block.getClass();
+        Boolean hasHooks = placementHookCache.get(blockClass);
+        if (hasHooks == null)
+        {
+            hasHooks = Boolean.FALSE;
+            for (Class<?> clazz = blockClass; clazz != Block.class && !hasHooks; clazz = clazz.getSuperclass())
+            {
+                for (Method method : clazz.getDeclaredMethods())
+                {
+                    String methodName = method.getName();
+                    // func_176213_c and func_180663_b are the obfuscated names, these may need to be updated for newer versions of mc/forge (> 1.10.2)
+                    if (methodName.equals("onBlockAdded") || methodName.equals("func_176213_c")
+                            || methodName.equals("breakBlock") || methodName.equals("func_180663_b"))
+                    {
+                        hasHooks = Boolean.TRUE;
+                        break;
+                    }
+                }
+            }
+            placementHookCache.put(blockClass, hasHooks);
+        }
+        return hasHooks;
+    }
+
+    private boolean replaceSourceBlockSlow(int x, int y, int z, LocalMaterialData material, MaterialSet sourceBlocks)
+    {
+        if (!sourceBlocks.contains(getMaterial(x, y, z)))
+        {
+            return false;
+        }
+        setBlock(x, y, z, material);
+        return true;
+    }
     
     @Override
     public int getHighestBlockYAt(int x, int z)
     {
+        int cachedY = this.heightCache.getHighestBlockY(x, z);
+        if (cachedY != PopulationHeightCache.UNKNOWN)
+        {
+            return cachedY;
+        }
+
         Chunk chunk = this.getChunk(x, 0, z);
         if (chunk == null)
         {
             return -1;
         }
 
-        int y = chunk.getHeightValue(x & 0xf, z & 0xf);
+        int heightMapY = chunk.getHeightValue(x & 0xf, z & 0xf);
+        int y = heightMapY;
 
         // Fix for incorrect light map
         // TODO: Fix this properly?
@@ -733,6 +913,7 @@ public class ForgeWorld implements LocalWorld
             this.world.checkLight(new BlockPos(x, y, z));
         }
 
+        this.heightCache.setHighestBlockY(x, z, y, heightMapY);
         return y;
     }
 
@@ -744,8 +925,16 @@ public class ForgeWorld implements LocalWorld
             throw new IllegalStateException("Chunk is already being populated." + " This may be a bug in Open Terrain Generator, but it may also be" + " another mod that is poking in unloaded chunks. Set" + " PopulationBoundsCheck to false in the WorldConfig to" + " disable this error.");
         }
 
+        if (this.chunkCache != null)
+        {
+            // Finish the chunk that was being populated
+            flushPopulationUpdates(this.chunkCache);
+        }
+
         // Initialize cache
         this.chunkCache = loadFourChunks(chunkCoord);
+        this.heightCache.enable(chunkCoord);
+        this.populationBlockCount = 0;
     }
 
     private Chunk[] getChunkCache(ChunkCoordinate topLeft)
@@ -794,7 +983,92 @@ public class ForgeWorld implements LocalWorld
                     + " PopulationBoundsCheck to false in the WorldConfig to"
                     + " disable this error.");
         }
+
+        Chunk[] populatedChunks = this.chunkCache;
         this.chunkCache = null;
+        this.heightCache.disable();
+
+        if (populatedChunks != null)
+        {
+            flushPopulationUpdates(populatedChunks);
+        }
+    }
+
+    @Override
+    public int getPopulationBlockCount()
+    {
+        return this.populationBlockCount;
+    }
+
+    /**
+     * Gets the index in {@link #chunkCache} of the chunk the given block is
+     * in.
+     * @param x Block x in the world.
+     * @param z Block z in the world.
+     * @return The index, or -1 if no chunk is being populated or if the
+     * block is outside the chunks being populated.
+     */
+    private int getPopulatingChunkIndex(int x, int z)
+    {
+        if (this.chunkCache == null)
+        {
+            return -1;
+        }
+
+        int indexX = (x >> 4) - this.chunkCache[0].xPosition;
+        int indexZ = (z >> 4) - this.chunkCache[0].zPosition;
+        if ((indexX == 0 || indexX == 1) && (indexZ == 0 || indexZ == 1))
+        {
+            return indexX | (indexZ << 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Performs the light updates and client updates that were postponed
+     * while populating. Light sources that were placed or removed are
+     * relit one by one. Chunks in which only the light opacity of blocks
+     * changed are relit by Minecraft on their next tick, just like newly
+     * generated chunks. The changed sections of chunks that players can
+     * already see are sent to those players.
+     * @param populatedChunks The chunks that were populated, indexed like
+     * {@link #chunkCache}.
+     */
+    private void flushPopulationUpdates(Chunk[] populatedChunks)
+    {
+        if (!this.pendingLightChecks.isEmpty())
+        {
+            this.world.theProfiler.startSection("checkLight");
+            for (long pos : this.pendingLightChecks)
+            {
+                this.world.checkLight(BlockPos.fromLong(pos));
+            }
+            this.world.theProfiler.endSection();
+            this.pendingLightChecks.clear();
+        }
+
+        for (int i = 0; i < populatedChunks.length; i++)
+        {
+            Chunk chunk = populatedChunks[i];
+            if (this.pendingSkylightChunks[i])
+            {
+                chunk.setLightPopulated(false);
+                this.pendingSkylightChunks[i] = false;
+            }
+
+            if (this.pendingClientSections[i] != 0)
+            {
+                if (this.world instanceof WorldServer)
+                {
+                    PlayerChunkMapEntry entry = ((WorldServer) this.world).getPlayerChunkMap().getEntry(chunk.xPosition, chunk.zPosition);
+                    if (entry != null && entry.isSentToPlayers())
+                    {
+                        entry.sendPacket(new SPacketChunkData(chunk, this.pendingClientSections[i]));
+                    }
+                }
+                this.pendingClientSections[i] = 0;
+            }
+        }
     }
 
     @Override
@@ -845,6 +1119,108 @@ public class ForgeWorld implements LocalWorld
         return this.generator;
     }
 
+    /**
+     * Loads only the biomes whose files were changed from disk. The
+     * reloaded biomes keep their registered Minecraft biome, which gets the
+     * new temperature, rainfall, colors and mob spawn lists. Settings used
+     * when registering biomes or creating the structure generators, and
+     * changes to WorldConfig.ini, need a restart.
+     *
+     * @return The names of the reloaded biomes, or null if WorldConfig.ini
+     * changed or a biome file is missing.
+     * @see ServerConfigProvider#reloadChangedBiomes()
+     */
+    public Collection<String> reloadChangedSettings()
+    {
+        this.reloadingBiomes = true;
+        try
+        {
+            return ((ServerConfigProvider) this.settings).reloadChangedBiomes();
+        } finally
+        {
+            this.reloadingBiomes = false;
+        }
+    }
+
+    /**
+     * Remembers when this world was unloaded, used by
+     * {@link WorldLoader#releaseIdleWorlds(int)}.
+     */
+    public void markUnloaded()
+    {
+        this.unloadedSince = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the time at which this world was unloaded.
+     * @return The time, in milliseconds since the epoch.
+     */
+    public long getUnloadedSince()
+    {
+        return this.unloadedSince;
+    }
+
+    /**
+     * Drops the terrain generator, the structure generators and all caches
+     * of this world. Only the name, seed, configs and Minecraft world are
+     * kept, as the dimension manager still needs those for unloaded worlds.
+     * The Minecraft world still references the chunk generator and biome
+     * provider, so those are emptied as well. Must only be called for
+     * unloaded worlds: when the dimension is loaded again a new ForgeWorld
+     * is created.
+     */
+    public void releaseGeneratorState()
+    {
+        if (this.generator != null)
+        {
+            this.generator.release();
+        }
+        if (this.world != null && this.world.provider.getBiomeProvider() instanceof TXBiomeProvider)
+        {
+            ((TXBiomeProvider) this.world.provider.getBiomeProvider()).release();
+        }
+
+        this.generator = null;
+        this.biomeGenerator = null;
+        this.structureCache = null;
+        this.dataFixer = null;
+
+        this.strongholdGen = null;
+        this.villageGen = null;
+        this.mineshaftGen = null;
+        this.rareBuildingGen = null;
+        this.netherFortressGen = null;
+        this.oceanMonumentGen = null;
+
+        this.dungeonGen = null;
+        this.fossilGen = null;
+
+        this.tree = null;
+        this.acaciaTree = null;
+        this.bigTree = null;
+        this.birchTree = null;
+        this.cocoaTree = null;
+        this.darkOakTree = null;
+        this.groundBush = null;
+        this.hugeRedMushroom = null;
+        this.hugeBrownMushroom = null;
+        this.hugeTaigaTree1 = null;
+        this.hugeTaigaTree2 = null;
+        this.jungleTree = null;
+        this.longBirchTree = null;
+        this.swampTree = null;
+        this.taigaTree1 = null;
+        this.taigaTree2 = null;
+
+        this.chunkCache = null;
+        this.generatorStateReleased = true;
+    }
+
+    public boolean isGeneratorStateReleased()
+    {
+        return this.generatorStateReleased;
+    }
+
     @SideOnly(Side.CLIENT)
     public void provideClientConfigsBukkit(WorldClient world, ClientConfigProvider config)
     {
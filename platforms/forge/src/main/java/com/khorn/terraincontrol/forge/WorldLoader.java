@@ -8,6 +8,7 @@ import com.khorn.terraincontrol.configuration.ClientConfigProvider;
 import com.khorn.terraincontrol.configuration.ConfigFile;
 import com.khorn.terraincontrol.configuration.ServerConfigProvider;
 import com.khorn.terraincontrol.customobjects.CustomObjectCollection;
+import com.khorn.terraincontrol.customobjects.SharedCustomObjects;
 import com.khorn.terraincontrol.forge.dimensions.TXDimensionManager;
 import com.khorn.terraincontrol.forge.dimensions.WorldProviderTX;
 import com.khorn.terraincontrol.forge.generator.TXBiome;
@@ -217,6 +218,10 @@ public final class WorldLoader
 		            this.worlds.remove(worldToRemove.getName());
 		        }
 		        
+		        for (CustomObjectCollection customObjects : this.configHolderMap.values())
+		        {
+		        	SharedCustomObjects.release(customObjects);
+		        }
 		        this.configHolderMap.clear();
 		        synchronized(this.unloadedWorlds)
 		        {
@@ -244,6 +249,7 @@ public final class WorldLoader
         	{
         		synchronized(this.unloadedWorlds)
         		{
+        			loadedWorld.markUnloaded();
         			this.unloadedWorlds.put(world.getName(), this.worlds.get(world.getName()));
             		this.worlds.remove(world.getName());
         		}
@@ -251,6 +257,42 @@ public final class WorldLoader
         }
     }
 
+    /**
+     * Releases the generator and caches of worlds that have been unloaded
+     * for at least the given time. Their configs and cached custom objects
+     * are kept, so that the dimension can be loaded again quickly.
+     * @param idleMinutes The minimum time since the world was unloaded.
+     * @return The number of worlds that were released.
+     */
+    public int releaseIdleWorlds(int idleMinutes)
+    {
+    	long releaseBefore = System.currentTimeMillis() - idleMinutes * 60000L;
+    	ArrayList<ForgeWorld> worldsToRelease = new ArrayList<ForgeWorld>();
+    	synchronized(this.unloadedWorlds)
+    	{
+    		for (ForgeWorld world : this.unloadedWorlds.values())
+    		{
+    			if (world.isGeneratorStateReleased() || world.getUnloadedSince() > releaseBefore)
+    			{
+    				continue;
+    			}
+    			// Don't touch worlds that Forge has loaded again, but that
+    			// didn't get a new ForgeWorld yet
+    			if (world.getWorld() != null && DimensionManager.getWorld(world.getWorld().provider.getDimension()) != null)
+    			{
+    				continue;
+    			}
+    			worldsToRelease.add(world);
+    		}
+    		for (ForgeWorld world : worldsToRelease)
+    		{
+    			TerrainControl.log(LogMarker.INFO, "Releasing generator of world \"{}\", it has been unloaded for {} minutes.", world.getName(), idleMinutes);
+    			world.releaseGeneratorState();
+    		}
+    	}
+    	return worldsToRelease.size();
+    }
+
     @Nullable
     public ForgeWorld getOrCreateForgeWorld(World mcWorld)
     {
@@ -379,6 +379,7 @@ public class TXBlockPortal
 
         public void placePortalBlocks()
         {
+            TXPortalIndex portalIndex = this.world instanceof WorldServer ? TXPortalIndex.get((WorldServer) this.world) : null;
             for (int i = 0; i < this.width; ++i)
             {
                 BlockPos blockpos = this.bottomLeft.offset(this.rightDir, i);
@@ -387,6 +388,10 @@ public class TXBlockPortal
                 {
                     this.world.setBlockState(blockpos.up(j), Blocks.PORTAL.getDefaultState().withProperty(BlockPortal.AXIS, this.axis), 2);
                 }
+                if (portalIndex != null)
+                {
+                    portalIndex.addPortal(blockpos);
+                }
             }
         }
     }
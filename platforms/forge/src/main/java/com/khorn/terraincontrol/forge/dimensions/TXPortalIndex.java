@@ -0,0 +1,148 @@
+package com.khorn.terraincontrol.forge.dimensions;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldSavedData;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.storage.MapStorage;
+
+/**
+ * Remembers where the portals of a dimension are, so that teleporting
+ * doesn't have to search the world for portal blocks.
+ *
+ * <p>For every column of a portal the lowest portal block is stored. The
+ * index is updated when OTG creates a portal, and when the teleporter finds
+ * a portal by searching the world. Portals that are broken are removed the
+ * next time they are looked up. The index is saved with the other data of
+ * the dimension.
+ *
+ * <p>Portals lit by players, placed by structures or objects or set using
+ * commands are not added when they are created, so the index never knows
+ * all portals. The teleporter uses the nearest indexed portal to limit the
+ * area it has to search for closer portals.
+ */
+public class TXPortalIndex extends WorldSavedData
+{
+    private static final String DATA_NAME = "OTGPortals";
+
+    private final LongOpenHashSet portals = new LongOpenHashSet();
+
+    public TXPortalIndex(String name)
+    {
+        super(name);
+    }
+
+    /**
+     * Gets the portal index of the given dimension, creating it if needed.
+     * @param world The dimension.
+     * @return The index.
+     */
+    public static TXPortalIndex get(WorldServer world)
+    {
+        MapStorage storage = world.getPerWorldStorage();
+        TXPortalIndex index = (TXPortalIndex) storage.getOrLoadData(TXPortalIndex.class, DATA_NAME);
+        if (index == null)
+        {
+            index = new TXPortalIndex(DATA_NAME);
+            index.markDirty();
+            storage.setData(DATA_NAME, index);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a portal column to the index.
+     * @param bottom The lowest portal block of the column.
+     */
+    public void addPortal(BlockPos bottom)
+    {
+        if (this.portals.add(bottom.toLong()))
+        {
+            markDirty();
+        }
+    }
+
+    /**
+     * Finds the portal column that is closest to the given position.
+     * Columns that no longer have a portal block are removed from the index.
+     * @param world    The dimension.
+     * @param center   The position to search around.
+     * @param maxRange The maximum distance on the x and z axis.
+     * @return The lowest portal block of the closest column, or null if
+     * there is no indexed portal within range.
+     */
+    public BlockPos findNearestPortal(WorldServer world, BlockPos center, int maxRange)
+    {
+        BlockPos nearest = null;
+        double nearestDistanceSq = -1;
+
+        LongIterator iterator = this.portals.iterator();
+        while (iterator.hasNext())
+        {
+            BlockPos portal = BlockPos.fromLong(iterator.nextLong());
+            if (Math.abs(portal.getX() - center.getX()) > maxRange || Math.abs(portal.getZ() - center.getZ()) > maxRange)
+            {
+                continue;
+            }
+            double distanceSq = portal.distanceSq(center);
+            if (nearest != null && distanceSq >= nearestDistanceSq)
+            {
+                continue;
+            }
+            if (world.getBlockState(portal).getBlock() != Blocks.PORTAL)
+            {
+                // Portal was broken
+                iterator.remove();
+                markDirty();
+                continue;
+            }
+            nearest = portal;
+            nearestDistanceSq = distanceSq;
+        }
+
+        if (nearest == null)
+        {
+            return null;
+        }
+        // The portal may have been extended downwards since it was indexed
+        BlockPos below = nearest.down();
+        while (below.getY() >= 0 && world.getBlockState(below).getBlock() == Blocks.PORTAL)
+        {
+            nearest = below;
+            below = below.down();
+        }
+        return nearest;
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt)
+    {
+        int[] positions = nbt.getIntArray("Portals");
+        this.portals.clear();
+        for (int i = 0; i + 2 < positions.length; i += 3)
+        {
+            this.portals.add(new BlockPos(positions[i], positions[i + 1], positions[i + 2]).toLong());
+        }
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt)
+    {
+        int[] positions = new int[this.portals.size() * 3];
+        int i = 0;
+        LongIterator iterator = this.portals.iterator();
+        while (iterator.hasNext())
+        {
+            BlockPos portal = BlockPos.fromLong(iterator.nextLong());
+            positions[i++] = portal.getX();
+            positions[i++] = portal.getY();
+            positions[i++] = portal.getZ();
+        }
+        nbt.setIntArray("Portals", positions);
+        return nbt;
+    }
+}
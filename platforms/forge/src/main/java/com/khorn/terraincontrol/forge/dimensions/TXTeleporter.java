@@ -295,12 +295,26 @@ public class TXTeleporter
             flag = false;
         } else {
             BlockPos blockpos3 = new BlockPos(entityIn);
+            TXPortalIndex portalIndex = TXPortalIndex.get(destinationWorld);
+            BlockPos indexedPortal = portalIndex.findNearestPortal(destinationWorld, blockpos3, 128);
+
+            // Portals that were not created by OTG are not in the index, so
+            // the world is still searched. A closer portal than the indexed
+            // one must be within its distance on the x and z axis, so only
+            // that area has to be searched.
+            int searchRadius = 128;
+            if (indexedPortal != null)
+            {
+                d0 = indexedPortal.distanceSq(blockpos3);
+                blockpos = indexedPortal;
+                searchRadius = Math.min(searchRadius, (int) Math.sqrt(d0));
+            }
 
-            for (int i1 = -128; i1 <= 128; ++i1)
+            for (int i1 = -searchRadius; i1 <= searchRadius; ++i1)
             {
                 BlockPos blockpos2;
 
-                for (int j1 = -128; j1 <= 128; ++j1)
+                for (int j1 = -searchRadius; j1 <= searchRadius; ++j1)
                 {
                     for (BlockPos blockpos1 = blockpos3.add(i1, destinationWorld.getActualHeight() - 1 - blockpos3.getY(), j1); blockpos1.getY() >= 0; blockpos1 = blockpos2)
                     {
@@ -324,6 +338,11 @@ public class TXTeleporter
                     }
                 }
             }
+
+            if (d0 >= 0.0D && blockpos != indexedPortal)
+            {
+                portalIndex.addPortal(blockpos);
+            }
         }
 
         if (d0 >= 0.0D)
@@ -368,6 +387,7 @@ public class TXTeleporter
             	boolean invertX = Math.random() > 0.5;
             	boolean invertY = Math.random() > 0.5;
             	boolean invertZ = Math.random() > 0.5;
+            	BlockPos.MutableBlockPos checkPos = new BlockPos.MutableBlockPos();
             	for(int x = -radius; x <= radius; x++)
             	{
             		int randomX = invertX ? -x : x;
@@ -378,12 +398,12 @@ public class TXTeleporter
             			{
             				int randomZ = invertZ ? -z : z;
             				
-	            			BlockPos blockPos1 = new BlockPos(d5 + randomX, d6 + randomY, d7 + randomZ);
-	            			BlockPos blockPos2 = new BlockPos(d5 + randomX, d6 + randomY + 1, d7 + randomZ);
-	            			BlockPos blockPos3 = new BlockPos(d5 + randomX, d6 + randomY + 2, d7 + randomZ);
-	            			IBlockState blockState1 = destinationWorld.getBlockState(blockPos1);
-	            			IBlockState blockState2 = destinationWorld.getBlockState(blockPos2);
-	            			IBlockState blockState3 = destinationWorld.getBlockState(blockPos3);
+	            			int blockX = MathHelper.floor_double(d5 + randomX);
+	            			int blockY = MathHelper.floor_double(d6 + randomY);
+	            			int blockZ = MathHelper.floor_double(d7 + randomZ);
+	            			IBlockState blockState1 = destinationWorld.getBlockState(checkPos.setPos(blockX, blockY, blockZ));
+	            			IBlockState blockState2 = destinationWorld.getBlockState(checkPos.setPos(blockX, blockY + 1, blockZ));
+	            			IBlockState blockState3 = destinationWorld.getBlockState(checkPos.setPos(blockX, blockY + 2, blockZ));
 
 	            			if(
             					blockState1.getMaterial().blocksMovement() &&
@@ -397,7 +417,7 @@ public class TXTeleporter
             					blockState3.getBlock() != Blocks.PORTAL
         					)
 	            			{
-		            			((EntityPlayerMP)entityIn).connection.setPlayerLocation(blockPos2.getX() + 0.5, blockPos2.getY(), blockPos2.getZ() + 0.5, entityIn.rotationYaw, entityIn.rotationPitch);
+		            			((EntityPlayerMP)entityIn).connection.setPlayerLocation(blockX + 0.5, blockY + 1, blockZ + 0.5, entityIn.rotationYaw, entityIn.rotationPitch);
 		            			return true;
 		            		}
             			}
@@ -414,6 +434,7 @@ public class TXTeleporter
             	boolean invertX = Math.random() > 0.5;
             	boolean invertY = Math.random() > 0.5;
             	boolean invertZ = Math.random() > 0.5;
+            	BlockPos.MutableBlockPos checkPos = new BlockPos.MutableBlockPos();
             	for(int x = -radius; x <= radius; x++)
             	{
             		int randomX = invertX ? -x : x;
@@ -424,12 +445,12 @@ public class TXTeleporter
             			{
             				int randomZ = invertZ ? -z : z;
             				
-	            			BlockPos blockPos1 = new BlockPos(d5 + randomX, d6 + randomY, d7 + randomZ);
-	            			BlockPos blockPos2 = new BlockPos(d5 + randomX, d6 + randomY + 1, d7 + randomZ);
-	            			BlockPos blockPos3 = new BlockPos(d5 + randomX, d6 + randomY + 2, d7 + randomZ);
-	            			IBlockState blockState1 = destinationWorld.getBlockState(blockPos1);
-	            			IBlockState blockState2 = destinationWorld.getBlockState(blockPos2);
-	            			IBlockState blockState3 = destinationWorld.getBlockState(blockPos3);
+	            			int blockX = MathHelper.floor_double(d5 + randomX);
+	            			int blockY = MathHelper.floor_double(d6 + randomY);
+	            			int blockZ = MathHelper.floor_double(d7 + randomZ);
+	            			IBlockState blockState1 = destinationWorld.getBlockState(checkPos.setPos(blockX, blockY, blockZ));
+	            			IBlockState blockState2 = destinationWorld.getBlockState(checkPos.setPos(blockX, blockY + 1, blockZ));
+	            			IBlockState blockState3 = destinationWorld.getBlockState(checkPos.setPos(blockX, blockY + 2, blockZ));
 	            			
 	            			if(
             					blockState1.getMaterial().blocksMovement() &&
@@ -443,7 +464,7 @@ public class TXTeleporter
             					blockState3.getBlock() != Blocks.PORTAL
         					)
 	            			{
-	                			entityIn.setLocationAndAngles(blockPos2.getX() + 0.5, blockPos2.getY(), blockPos2.getZ() + 0.5, entityIn.rotationYaw, entityIn.rotationPitch);
+	                			entityIn.setLocationAndAngles(blockX + 0.5, blockY + 1, blockZ + 0.5, entityIn.rotationYaw, entityIn.rotationPitch);
 		            			return true;
 		            		}
 	            		}
@@ -688,6 +709,12 @@ public class TXTeleporter
             }
         }
 
+        TXPortalIndex portalIndex = TXPortalIndex.get(destinationWorld);
+        for (int l8 = 1; l8 < 3; ++l8)
+        {
+            portalIndex.addPortal(new BlockPos(i6 + (l8 - 1) * l6, k2, k6 + (l8 - 1) * i3));
+        }
+
         return true;
     }
 }
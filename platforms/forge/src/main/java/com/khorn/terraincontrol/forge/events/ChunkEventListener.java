@@ -3,9 +3,13 @@ package com.khorn.terraincontrol.forge.events;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.forge.ForgeEngine;
 import com.khorn.terraincontrol.forge.generator.Cartographer;
-import com.khorn.terraincontrol.util.ChunkCoordinate;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.terraingen.PopulateChunkEvent;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ExplosionEvent;
 import net.minecraftforge.event.world.ChunkEvent.Unload;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.network.FMLNetworkEvent.ClientDisconnectionFromServerEvent;
@@ -25,11 +29,56 @@ public class ChunkEventListener
 			{
 				if(event.getWorld().provider.getDimension() == 0)
 				{
-					Cartographer.CreateBlockWorldMapAtSpawn(ChunkCoordinate.fromChunkCoords(event.getChunk().xPosition, event.getChunk().zPosition), true);
+					Cartographer.onChunkUnloaded(event.getChunk().xPosition, event.getChunk().zPosition);
 				}
 			}
 		}
 	}
+
+	@SubscribeEvent
+	public void onPopulateChunk(PopulateChunkEvent.Post event)
+	{
+		if(!event.getWorld().isRemote && event.getWorld().provider.getDimension() == 0 && ((ForgeEngine)TerrainControl.getEngine()).getCartographerEnabled())
+		{
+			// Population of a chunk spans the 2x2 chunks starting at the chunk
+			for(int x = 0; x < 2; x++)
+			{
+				for(int z = 0; z < 2; z++)
+				{
+					Cartographer.markChunkDirty(event.getChunkX() + x, event.getChunkZ() + z);
+				}
+			}
+		}
+	}
+
+	@SubscribeEvent
+	public void onBlockBreak(BlockEvent.BreakEvent event)
+	{
+		markBlockDirty(event.getWorld(), event.getPos());
+	}
+
+	@SubscribeEvent
+	public void onBlockPlace(BlockEvent.PlaceEvent event)
+	{
+		markBlockDirty(event.getWorld(), event.getPos());
+	}
+
+	@SubscribeEvent
+	public void onExplosion(ExplosionEvent.Detonate event)
+	{
+		for(BlockPos pos : event.getAffectedBlocks())
+		{
+			markBlockDirty(event.getWorld(), pos);
+		}
+	}
+
+	private void markBlockDirty(World world, BlockPos pos)
+	{
+		if(!world.isRemote && world.provider.getDimension() == 0 && ((ForgeEngine)TerrainControl.getEngine()).getCartographerEnabled())
+		{
+			Cartographer.markChunkDirty(pos.getX() >> 4, pos.getZ() >> 4);
+		}
+	}
 	
     @SideOnly(Side.CLIENT)
     @SubscribeEvent
@@ -23,6 +23,10 @@ import com.khorn.terraincontrol.util.ChunkCoordinate;
 
 public class ServerEventListener
 {	
+	// Unloaded dimensions are checked once a minute
+	private static final int IDLE_CHECK_INTERVAL = 20 * 60;
+	private int ticksUntilIdleCheck = IDLE_CHECK_INTERVAL;
+
 	@SubscribeEvent
 	public void onServerTick(ServerTickEvent event)
 	{		
@@ -42,6 +46,16 @@ public class ServerEventListener
 			
 			// When players are at Y < 0 or Y > 256 teleport them to the dimension above or below this world (configured via worldconfig)
 			TeleportPlayers();
+			
+			if(--ticksUntilIdleCheck <= 0)
+			{
+				ticksUntilIdleCheck = IDLE_CHECK_INTERVAL;
+				int idleMinutes = TerrainControl.getPluginConfig().DimensionIdleReleaseMinutes;
+				if(idleMinutes > 0)
+				{
+					((ForgeEngine)TerrainControl.getEngine()).getWorldLoader().releaseIdleWorlds(idleMinutes);
+				}
+			}
 		}
 	}
 	
@@ -3,11 +3,13 @@ package com.khorn.terraincontrol.forge.events;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import com.khorn.terraincontrol.BiomeIds;
 import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.ServerConfigProvider;
 import com.khorn.terraincontrol.configuration.WorldConfig;
@@ -16,8 +18,13 @@ import com.khorn.terraincontrol.forge.ForgeBiome;
 import com.khorn.terraincontrol.forge.ForgeEngine;
 import com.khorn.terraincontrol.forge.ForgeWorld;
 import com.khorn.terraincontrol.forge.TXWorldType;
+import com.khorn.terraincontrol.forge.WorldLoader;
 import com.khorn.terraincontrol.forge.dimensions.TXDimensionManager;
+import com.khorn.terraincontrol.forge.generator.TXBiomeProvider;
 import com.khorn.terraincontrol.forge.util.CommandHelper;
+import com.khorn.terraincontrol.generator.ChunkProviderTC;
+import com.khorn.terraincontrol.generator.biome.BiomeLocator;
+import com.khorn.terraincontrol.generator.biome.BiomeMapExporter;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.minecraftTypes.MobNames;
@@ -34,6 +41,7 @@ import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.util.text.TextFormatting;
 import net.minecraft.world.DimensionType;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraft.world.biome.Biome.SpawnListEntry;
 import net.minecraftforge.common.BiomeDictionary;
 import net.minecraftforge.common.DimensionManager;
@@ -94,7 +102,7 @@ public final class TXCommandHandler implements ICommand
                 sender.addChatMessage(new TextComponentString("-- OpenTerrainGenerator --"));
                 sender.addChatMessage(new TextComponentString(""));
                 sender.addChatMessage(new TextComponentString("Commands:"));
-                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg worldinfo " + VALUE_COLOR + "Show author and description information for this world."));
+                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg worldinfo " + VALUE_COLOR + "Show author, description and memory information for this world."));
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg biome <-f, -s, -d, -m> " + VALUE_COLOR + "Show biome information for the biome at the player's coordinates."));
                 if(isOp)
                 {
@@ -103,7 +111,10 @@ public final class TXCommandHandler implements ICommand
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg entities " + VALUE_COLOR + "Show a list of entities that can be spawned inside BO3's using the Entity() tag."));
                 if(isOp)
                 {
+	                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg reload " + VALUE_COLOR + "Reloads the biome configs of this world that were changed, and the biomes that inherit from them."));
 	                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg pregen <radius> " + VALUE_COLOR + "Sets the pre-generation radius to <radius> chunks. Same as /otg pregenerator <radius>."));
+	                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg map [-s size] [-r angle] [-o x z] " + VALUE_COLOR + "Exports a biome and temperature map of <size> by <size> chunks (default 200) around the player or x z to the server folder, without generating any chunks."));
+	                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg locate biome <biome name> [-r radius] " + VALUE_COLOR + "Finds the nearest <biome name> within <radius> blocks (default 10000), without generating any chunks. Use /otg locate cancel to stop the search."));
                 }
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg dim " + VALUE_COLOR + "Shows the name and id of the dimension the player is currently in. Same as /otg dimension."));
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "/otg dim -l " + VALUE_COLOR + "Shows a list of all dimensions. Same as /otg dimension -l."));
@@ -183,6 +194,35 @@ public final class TXCommandHandler implements ICommand
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Name: " + VALUE_COLOR + world.getName()));
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Author: " + VALUE_COLOR + worldConfig.author));
                 sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Description: " + VALUE_COLOR + worldConfig.description));
+                
+                sender.addChatMessage(new TextComponentString(""));
+                sender.addChatMessage(new TextComponentString("-- Memory --"));
+                sender.addChatMessage(new TextComponentString(""));
+                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Loaded chunks: " + VALUE_COLOR + ((WorldServer)world.getWorld()).getChunkProvider().getLoadedChunkCount()));
+                sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Custom objects: " + VALUE_COLOR + world.getConfigs().getCustomObjects().getAll().size()));
+                
+                // Cache sizes of every dimension, the sizes are estimates
+                WorldLoader worldLoader = ((ForgeEngine)TerrainControl.getEngine()).getWorldLoader();
+                for(LocalWorld localWorld : worldLoader.getAllWorlds())
+                {
+                	sendCacheInfo(sender, (ForgeWorld) localWorld, worldLoader.isWorldUnloaded(localWorld.getName()));
+                }
+            }
+            else if (isOp && argString[0].equals("reload"))
+            {
+            	Collection<String> reloadedBiomes = world.reloadChangedSettings();
+            	if (reloadedBiomes == null)
+            	{
+            		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "WorldConfig.ini was changed or a biome config is missing, restart the server to load the changes."));
+            	}
+            	else if (reloadedBiomes.isEmpty())
+            	{
+            		sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "No changed configs found for world " + VALUE_COLOR + world.getName() + MESSAGE_COLOR + "."));
+            	} else {
+            		sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Reloaded " + reloadedBiomes.size() + " biomes in world " + VALUE_COLOR + world.getName() + MESSAGE_COLOR + ": " + VALUE_COLOR + reloadedBiomes));
+            		TerrainControl.log(LogMarker.INFO, "{} reloaded the biome configs {} of world \"{}\".", sender.getName(), reloadedBiomes, world.getName());
+            		sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Changes to " + VALUE_COLOR + "BiomeDictId" + MESSAGE_COLOR + ", " + VALUE_COLOR + "ReplaceToBiomeName" + MESSAGE_COLOR + ", " + VALUE_COLOR + "VillageType" + MESSAGE_COLOR + ", " + VALUE_COLOR + "StrongholdsEnabled" + MESSAGE_COLOR + ", " + VALUE_COLOR + "RareBuildingType" + MESSAGE_COLOR + " and " + VALUE_COLOR + "OceanMonumentsEnabled" + MESSAGE_COLOR + " need a restart. Players may need to rejoin to see new colors."));
+            	}
             }
             else if (isOp && (argString[0].equals("pregenerator") || argString[0].equals("pregen")))
             {
@@ -376,6 +416,14 @@ public final class TXCommandHandler implements ICommand
             	((EntityPlayer)sender.getCommandSenderEntity()).setPositionAndUpdate(newX, newY, newZ);
             }
             */ 
+            else if (isOp && argString[0].equals("map"))
+            {
+            	exportMap(sender, world, argString, playerX, playerZ);
+            }
+            else if (isOp && argString[0].equals("locate"))
+            {
+            	locateBiome(sender, world, argString, playerX, playerZ);
+            }
             else if (argString[0].equals("biome"))
             {
             	if(!(sender.getEntityWorld().getWorldInfo().getTerrainType() instanceof TXWorldType))
@@ -474,6 +522,219 @@ public final class TXCommandHandler implements ICommand
         }
     }   
 
+    /**
+     * Shows the sizes of the generator caches of a dimension. Sizes in KB
+     * are estimates, based on the size of a cache entry.
+     */
+    private void sendCacheInfo(ICommandSender sender, ForgeWorld world, boolean unloaded)
+    {
+        String state;
+        if (world.isGeneratorStateReleased())
+        {
+            state = "released";
+        } else if (unloaded)
+        {
+            state = "unloaded for " + ((System.currentTimeMillis() - world.getUnloadedSince()) / 60000) + " min";
+        } else
+        {
+            state = "loaded";
+        }
+        sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Dimension " + VALUE_COLOR + world.getName() + MESSAGE_COLOR + " (" + VALUE_COLOR + state + MESSAGE_COLOR + ")"));
+        if (world.isGeneratorStateReleased())
+        {
+            return;
+        }
+
+        ChunkProviderTC terrainGenerator = world.getChunkGenerator() == null ? null : world.getChunkGenerator().getTerrainGenerator();
+        if (terrainGenerator != null)
+        {
+            sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "  Noise columns: " + VALUE_COLOR + terrainGenerator.getCachedColumnCount()
+                    + MESSAGE_COLOR + " (" + VALUE_COLOR + (terrainGenerator.estimateColumnCacheBytes() / 1024) + " KB" + MESSAGE_COLOR + ")"));
+        }
+        if (world.getBiomeGenerator() != null)
+        {
+            // Each chunk holds 256 biome ids, plus the map entry
+            int biomeChunks = world.getBiomeGenerator().getCachedChunkCount();
+            sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "  Cached biome chunks: " + VALUE_COLOR + biomeChunks
+                    + MESSAGE_COLOR + " (" + VALUE_COLOR + (biomeChunks * 1120L / 1024) + " KB" + MESSAGE_COLOR + ")"));
+        }
+        if (world.getWorld() != null && world.getWorld().provider.getBiomeProvider() instanceof TXBiomeProvider)
+        {
+            // Each tile holds 16x16 biome ids, plus the map entry
+            int biomeTiles = ((TXBiomeProvider) world.getWorld().provider.getBiomeProvider()).getUnzoomedTileCount();
+            sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "  Cached biome tiles: " + VALUE_COLOR + biomeTiles
+                    + MESSAGE_COLOR + " (" + VALUE_COLOR + (biomeTiles * 1100L / 1024) + " KB" + MESSAGE_COLOR + ")"));
+        }
+        sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "  Cached structures: " + VALUE_COLOR + (world.getStructureCache() == null ? 0 : world.getStructureCache().getStructureCount())));
+    }
+
+    private void exportMap(final ICommandSender sender, ForgeWorld world, String[] argString, int offsetX, int offsetZ)
+    {
+    	if (!BiomeMapExporter.canExport(world))
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Maps can only be exported for worlds that use the Normal, BeforeGroups or FromImage biome mode."));
+    		return;
+    	}
+    	if (BiomeMapExporter.isWorking())
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Another map export is already running."));
+    		return;
+    	}
+
+    	int size = 200;
+    	BiomeMapExporter.Angle angle = BiomeMapExporter.Angle.d0;
+    	try
+    	{
+	    	for (int i = 1; i < argString.length; i++)
+	    	{
+	    		if (argString[i].equals("-s"))
+	    		{
+	    			size = Integer.parseInt(argString[++i]);
+	    		}
+	    		else if (argString[i].equals("-o"))
+	    		{
+	    			offsetX = Integer.parseInt(argString[++i]);
+	    			offsetZ = Integer.parseInt(argString[++i]);
+	    		}
+	    		else if (argString[i].equals("-r"))
+	    		{
+	    			int degrees = Integer.parseInt(argString[++i]);
+	    			if (degrees % 90 != 0)
+	    			{
+	    				sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Angles must be divisible by 90 degrees."));
+	    				return;
+	    			}
+	    			angle = BiomeMapExporter.Angle.values()[((degrees / 90) % 4 + 4) % 4];
+	    		}
+	    	}
+    	}
+    	catch (RuntimeException e) // NumberFormatException or ArrayIndexOutOfBoundsException
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Usage: /otg map [-s size] [-r angle] [-o x z]"));
+    		return;
+    	}
+
+    	final File biomeFile = new File(world.getName() + "_biome.png");
+    	File temperatureFile = new File(world.getName() + "_temperature.png");
+    	BiomeMapExporter exporter = new BiomeMapExporter(world, size, angle, offsetX, offsetZ, biomeFile, temperatureFile, Runtime.getRuntime().availableProcessors() - 1);
+
+    	sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Exporting map..."));
+    	exporter.start(new BiomeMapExporter.Listener()
+    	{
+    		@Override
+    		public void onProgress(int percentage)
+    		{
+    			sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Map export " + VALUE_COLOR + percentage + "%"));
+    		}
+
+    		@Override
+    		public void onFinished(long timeMillis)
+    		{
+    			sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Map exported to " + VALUE_COLOR + biomeFile.getAbsolutePath() + MESSAGE_COLOR + " in " + VALUE_COLOR + (timeMillis / 1000) + MESSAGE_COLOR + " seconds."));
+    		}
+
+    		@Override
+    		public void onFailed(Exception e)
+    		{
+    			sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Map export failed: " + e.getLocalizedMessage()));
+    		}
+    	});
+    }
+
+    private void locateBiome(final ICommandSender sender, ForgeWorld world, String[] argString, int playerX, int playerZ)
+    {
+    	if (argString.length == 2 && argString[1].equals("cancel"))
+    	{
+    		if (!BiomeLocator.cancelRunning())
+    		{
+    			sender.addChatMessage(new TextComponentString(ERROR_COLOR + "No biome search is running."));
+    		}
+    		return;
+    	}
+
+    	String usage = "Usage: /otg locate biome <biome name> [-r radius] or /otg locate cancel";
+    	if (argString.length < 3 || !argString[1].equals("biome"))
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + usage));
+    		return;
+    	}
+    	if (!BiomeLocator.canLocate(world))
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Biomes can only be located in worlds that use the Normal, BeforeGroups or FromImage biome mode."));
+    		return;
+    	}
+
+    	// Biome names may contain spaces
+    	String biomeName = "";
+    	int radius = 10000;
+    	try
+    	{
+	    	for (int i = 2; i < argString.length; i++)
+	    	{
+	    		if (argString[i].equals("-r"))
+	    		{
+	    			radius = Integer.parseInt(argString[++i]);
+	    		} else
+	    		{
+	    			biomeName += (biomeName.length() == 0 ? "" : " ") + argString[i];
+	    		}
+	    	}
+    	}
+    	catch (RuntimeException e) // NumberFormatException or ArrayIndexOutOfBoundsException
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + usage));
+    		return;
+    	}
+
+    	LocalBiome biome = world.getBiomeByNameOrNull(biomeName);
+    	if (biome == null)
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Biome \"" + biomeName + "\" does not exist in this world."));
+    		return;
+    	}
+
+    	final String foundBiomeName = biome.getName();
+    	BiomeLocator locator = new BiomeLocator(world, biome.getIds().getGenerationId(), playerX, playerZ, radius, Runtime.getRuntime().availableProcessors() - 1);
+    	boolean started = locator.start(new BiomeLocator.Listener()
+    	{
+    		@Override
+    		public void onProgress(int radius, int percentage)
+    		{
+    			sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Searched " + VALUE_COLOR + radius + MESSAGE_COLOR + " blocks (" + VALUE_COLOR + percentage + "%" + MESSAGE_COLOR + ")"));
+    		}
+
+    		@Override
+    		public void onFound(int x, int z, int distance, long timeMillis)
+    		{
+    			sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Found " + VALUE_COLOR + foundBiomeName + MESSAGE_COLOR + " at " + VALUE_COLOR + x + ", " + z + MESSAGE_COLOR + " (" + VALUE_COLOR + distance + MESSAGE_COLOR + " blocks away) in " + VALUE_COLOR + (timeMillis / 1000) + MESSAGE_COLOR + " seconds."));
+    		}
+
+    		@Override
+    		public void onNotFound(int radius)
+    		{
+    			sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Could not find " + foundBiomeName + " within " + radius + " blocks."));
+    		}
+
+    		@Override
+    		public void onCancelled()
+    		{
+    			sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Biome search cancelled."));
+    		}
+
+    		@Override
+    		public void onFailed(Exception e)
+    		{
+    			sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Biome search failed: " + e.getLocalizedMessage()));
+    		}
+    	});
+    	if (!started)
+    	{
+    		sender.addChatMessage(new TextComponentString(ERROR_COLOR + "Another biome search is already running. Use /otg locate cancel to stop it."));
+    		return;
+    	}
+    	sender.addChatMessage(new TextComponentString(MESSAGE_COLOR + "Searching for " + VALUE_COLOR + foundBiomeName + MESSAGE_COLOR + "..."));
+    }
+
     @Override
     public boolean checkPermission(MinecraftServer server, ICommandSender sender)
     {
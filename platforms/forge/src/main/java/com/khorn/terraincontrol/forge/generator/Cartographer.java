@@ -5,6 +5,12 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
 
 import net.minecraft.block.BlockSkull;
 import net.minecraft.entity.Entity;
@@ -30,6 +36,7 @@ import net.minecraft.tileentity.TileEntitySkull;
 import net.minecraft.util.EntitySelectors;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.Teleporter;
 import net.minecraft.world.WorldServer;
@@ -53,7 +60,41 @@ public class Cartographer
 	// TODO: Use instance instead of static methods
 
 	public static int CartographerDimension = 0;
-	
+
+	// Max number of dirty chunks redrawn on the map per server tick
+	private static final int MAX_CHUNKS_PER_TICK = 32;
+	// Chunks in view of players queued for a redraw per server tick. Only block changes made
+	// by players and explosions mark chunks dirty, so this slowly catches up on the rest
+	// (pistons, flowing liquids, growing plants, other mods).
+	private static final int REFRESH_CHUNKS_PER_TICK = 4;
+
+	// Overworld chunks (packed via ChunkPos.asLong) whose map blocks need to be redrawn.
+	// Filled by chunk populate, block change and player movement events, drained by UpdateWorldMap.
+	private static final LinkedHashSet<Long> dirtyChunks = new LinkedHashSet<Long>();
+	// Last known overworld chunk of each player, used to detect players crossing chunk borders
+	private static final HashMap<UUID, ChunkCoordinate> lastPlayerChunks = new HashMap<UUID, ChunkCoordinate>();
+	// Player and chunk in that player's view window that get refreshed next
+	private static int refreshPlayerIndex = 0;
+	private static int refreshChunkIndex = 0;
+
+	/**
+	 * Queues an overworld chunk to be redrawn on the map.
+	 */
+	public static void markChunkDirty(int chunkX, int chunkZ)
+	{
+		dirtyChunks.add(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Redraws an overworld chunk on the map right away because it is about to be unloaded
+	 * (after which its blocks can no longer be read without loading it again).
+	 */
+	public static void onChunkUnloaded(int chunkX, int chunkZ)
+	{
+		dirtyChunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+		CreateBlockWorldMapAtSpawn(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ), true);
+	}
+
 	static long lastUpdateTime = System.currentTimeMillis();
 	public static void UpdateWorldMap()
 	{	
@@ -94,7 +135,6 @@ public class Cartographer
 				
 				BlockPos spawnPoint = world.getSpawnPoint();
 		    	BlockPos cartographerSpawnPoint = cartographerWorld.getSpawnPoint();
-		    	ChunkCoordinate spawnChunk = ChunkCoordinate.fromBlockCoords(spawnPoint.getX(), spawnPoint.getZ());
 				
 		    	HashMap<ChunkCoordinate,ArrayList<Entity>> entitiesPerBlock = new HashMap<ChunkCoordinate, ArrayList<Entity>>();
 		    	for(Entity entity : cartographerWorld.getWorld().getEntities(Entity.class, EntitySelectors.NOT_SPECTATING))
@@ -131,92 +171,194 @@ public class Cartographer
 		    		}
 		    	}
 		    	
-				ArrayList<ChunkCoordinate> chunksDone = new ArrayList<ChunkCoordinate>();
-		    	
-				// Check all chunks around spawn for items to teleport
-		        int minDist = world.getWorld().getMinecraftServer().getPlayerList().getViewDistance();
-				for(int x = -minDist; x < minDist; x++)
-				{
-					for(int z = -minDist; z < minDist; z++)
+		    	// Only chunks that actually contain entities need to be checked, so test the
+		    	// entity buckets against the areas around spawn, portals and players instead
+		    	// of walking every chunk in those areas.
+		    	if(!entitiesPerBlock.isEmpty())
+		    	{
+					int viewDist = world.getWorld().getMinecraftServer().getPlayerList().getViewDistance();
+					int portalDist = 2; // Radius around portals can be tp'd to even when no player is near
+					
+					ArrayList<ChunkCoordinate> playerChunks = new ArrayList<ChunkCoordinate>();
+			    	for(EntityPlayer player : world.getWorld().playerEntities)
+			    	{
+			    		if(player.dimension == 0)
+			    		{
+			    			playerChunks.add(ChunkCoordinate.fromBlockCoords((int)Math.floor(player.posX) - spawnPoint.getX(), (int)Math.floor(player.posZ) - spawnPoint.getZ()));
+			    		}
+			    	}
+					ArrayList<ChunkCoordinate> portalChunks = new ArrayList<ChunkCoordinate>();
+					for(Teleporter.PortalPosition portalPos : destinationCoordinateCache.values())
 					{
-						ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(x, z);
-						if(!chunksDone.contains(chunkCoord))
-						{
-							ArrayList<Entity> entities = entitiesPerBlock.get(chunkCoord);
-			        		chunksDone.add(chunkCoord);
-			        		if(entities != null)
-			        		{
-		        				TeleportEntityFromMap(cartographerWorld, entities, true);
-			        		}
-						}
+						portalChunks.add(ChunkCoordinate.fromBlockCoords(portalPos.getX() - spawnPoint.getX(), portalPos.getZ() - spawnPoint.getZ()));
 					}
+			    	
+			    	for(Entry<ChunkCoordinate, ArrayList<Entity>> entry : entitiesPerBlock.entrySet())
+			    	{
+			    		ChunkCoordinate chunkCoord = entry.getKey();
+			    		boolean inRange = isInWindow(chunkCoord, 0, 0, viewDist);
+			    		for(int i = 0; !inRange && i < portalChunks.size(); i++)
+			    		{
+			    			inRange = isInWindow(chunkCoord, portalChunks.get(i).getChunkX(), portalChunks.get(i).getChunkZ(), portalDist);
+			    		}
+			    		for(int i = 0; !inRange && i < playerChunks.size(); i++)
+			    		{
+			    			inRange = isInWindow(chunkCoord, playerChunks.get(i).getChunkX(), playerChunks.get(i).getChunkZ(), viewDist);
+			    		}
+			    		if(inRange)
+			    		{
+			    			TeleportEntityFromMap(cartographerWorld, entry.getValue(), true);
+			    		}
+			    	}
+		    	}
+
+		    	markMovedPlayersDirty(world);
+		    	destinationCoordinateCache = null;
+			}
+
+			queueChunksInView(worldServer);
+			processDirtyChunks(worldServer);
+		}
+	}
+
+	/**
+	 * Queues the next REFRESH_CHUNKS_PER_TICK chunks in view of players for a redraw,
+	 * going round-robin through the view window of each player.
+	 */
+	private static void queueChunksInView(WorldServer worldServer)
+	{
+		List<EntityPlayer> players = worldServer.playerEntities;
+		if(players.isEmpty())
+		{
+			return;
+		}
+
+		int viewDist = worldServer.getMinecraftServer().getPlayerList().getViewDistance();
+		int windowSize = 2 * viewDist;
+		for(int i = 0; i < REFRESH_CHUNKS_PER_TICK; i++)
+		{
+			if(refreshChunkIndex >= windowSize * windowSize)
+			{
+				refreshChunkIndex = 0;
+				refreshPlayerIndex++;
+			}
+			if(refreshPlayerIndex >= players.size())
+			{
+				refreshPlayerIndex = 0;
+			}
+
+			EntityPlayer player = players.get(refreshPlayerIndex);
+			ChunkCoordinate playerChunk = ChunkCoordinate.fromBlockCoords((int)Math.floor(player.posX), (int)Math.floor(player.posZ));
+			markChunkDirty(playerChunk.getChunkX() - viewDist + refreshChunkIndex / windowSize, playerChunk.getChunkZ() - viewDist + refreshChunkIndex % windowSize);
+			refreshChunkIndex++;
+		}
+	}
+
+	/**
+	 * Checks if the given chunk lies in the (2 * radius)² window starting at
+	 * centerX - radius, centerZ - radius (the same window the map has always used).
+	 */
+	private static boolean isInWindow(ChunkCoordinate chunkCoord, int centerX, int centerZ, int radius)
+	{
+		return
+			chunkCoord.getChunkX() >= centerX - radius && chunkCoord.getChunkX() < centerX + radius &&
+			chunkCoord.getChunkZ() >= centerZ - radius && chunkCoord.getChunkZ() < centerZ + radius;
+	}
+
+	/**
+	 * Marks the chunks that went in or out of view (and so in or out of the fog of war) for
+	 * every player that crossed a chunk border, joined or left since the last update.
+	 */
+	private static void markMovedPlayersDirty(ForgeWorld world)
+	{
+		int viewDist = world.getWorld().getMinecraftServer().getPlayerList().getViewDistance();
+
+		HashSet<UUID> playersSeen = new HashSet<UUID>();
+		for(EntityPlayer player : world.getWorld().playerEntities)
+		{
+			if(player.dimension == 0)
+			{
+				playersSeen.add(player.getUniqueID());
+				ChunkCoordinate playerChunk = ChunkCoordinate.fromBlockCoords((int)Math.floor(player.posX), (int)Math.floor(player.posZ));
+				ChunkCoordinate lastPlayerChunk = lastPlayerChunks.put(player.getUniqueID(), playerChunk);
+				if(!playerChunk.equals(lastPlayerChunk))
+				{
+					markViewChangeDirty(lastPlayerChunk, playerChunk, viewDist);
 				}
-		    	
-				// Check all chunks around portals for items to teleport
-				minDist = 2; // Radius around portals can be tp'd to even when no player is near 						
-				for(Teleporter.PortalPosition portalPos : destinationCoordinateCache.values())
+			}
+		}
+
+		Iterator<Entry<UUID, ChunkCoordinate>> it = lastPlayerChunks.entrySet().iterator();
+		while(it.hasNext())
+		{
+			Entry<UUID, ChunkCoordinate> entry = it.next();
+			if(!playersSeen.contains(entry.getKey()))
+			{
+				markViewChangeDirty(entry.getValue(), null, viewDist);
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Marks all chunks that are in exactly one of the two view windows dirty,
+	 * as well as both player chunks (for the player heads). Either chunk may
+	 * be null for players joining or leaving.
+	 */
+	private static void markViewChangeDirty(ChunkCoordinate oldChunk, ChunkCoordinate newChunk, int viewDist)
+	{
+		if(oldChunk != null)
+		{
+			markChunkDirty(oldChunk.getChunkX(), oldChunk.getChunkZ());
+		}
+		if(newChunk != null)
+		{
+			markChunkDirty(newChunk.getChunkX(), newChunk.getChunkZ());
+		}
+
+		ChunkCoordinate from = oldChunk != null ? oldChunk : newChunk;
+		ChunkCoordinate to = newChunk != null ? newChunk : oldChunk;
+		int minX = Math.min(from.getChunkX(), to.getChunkX()) - viewDist;
+		int maxX = Math.max(from.getChunkX(), to.getChunkX()) + viewDist;
+		int minZ = Math.min(from.getChunkZ(), to.getChunkZ()) - viewDist;
+		int maxZ = Math.max(from.getChunkZ(), to.getChunkZ()) + viewDist;
+		for(int x = minX; x < maxX; x++)
+		{
+			for(int z = minZ; z < maxZ; z++)
+			{
+				ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(x, z);
+				boolean inOld = oldChunk != null && isInWindow(chunkCoord, oldChunk.getChunkX(), oldChunk.getChunkZ(), viewDist);
+				boolean inNew = newChunk != null && isInWindow(chunkCoord, newChunk.getChunkX(), newChunk.getChunkZ(), viewDist);
+				if(inOld != inNew)
 				{
-					ChunkCoordinate portalChunk = ChunkCoordinate.fromBlockCoords(portalPos.getX() - spawnPoint.getX(), portalPos.getZ() - spawnPoint.getZ());
-	
-					for(int x = portalChunk.getChunkX() - minDist; x < portalChunk.getChunkX() + minDist; x++)
-					{
-						for(int z = portalChunk.getChunkZ() - minDist; z < portalChunk.getChunkZ() + minDist; z++)
-						{
-							ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(x, z);
-							if(!chunksDone.contains(chunkCoord))
-							{
-								ArrayList<Entity> entities = entitiesPerBlock.get(chunkCoord);
-				        		chunksDone.add(chunkCoord);
-				        		if(entities != null)
-				        		{
-			        				TeleportEntityFromMap(cartographerWorld, entities, true);
-				        		}
-							}
-						}
-					}
+					markChunkDirty(x, z);
 				}
+			}
+		}
+	}
 
-				// Update all chunks around players
-				//destinationCoordinateCache = getPortals();
-				int viewDist = world.getWorld().getMinecraftServer().getPlayerList().getViewDistance();
-				ArrayList<ChunkCoordinate> chunksDonePlayers = new ArrayList<ChunkCoordinate>();
-		    	for(EntityPlayer player : world.getWorld().playerEntities)
-		    	{
-		    		if(player.dimension == 0)
-		    		{
-		    			ChunkCoordinate playerChunk = ChunkCoordinate.fromBlockCoords((int)Math.floor(player.posX) - spawnPoint.getX(), (int)Math.floor(player.posZ) - spawnPoint.getZ());
-	
-						for(int x = playerChunk.getChunkX() - viewDist; x < playerChunk.getChunkX() + viewDist; x++)
-						{
-							for(int z = playerChunk.getChunkZ() - viewDist; z < playerChunk.getChunkZ() + viewDist; z++)
-							{
-								ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(x, z);
-			        			if(!chunksDonePlayers.contains(chunkCoord))
-			        			{
-									if(!chunksDone.contains(chunkCoord))
-									{
-										ArrayList<Entity> entities = entitiesPerBlock.get(chunkCoord);
-						        		chunksDone.add(chunkCoord);
-						        		if(entities != null)
-						        		{
-					        				TeleportEntityFromMap(cartographerWorld, entities, true);
-						        		}
-									}
-			        				chunksDonePlayers.add(chunkCoord);
-									ChunkCoordinate realChunkCoord = ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + spawnChunk.getChunkX(), chunkCoord.getChunkZ() + spawnChunk.getChunkZ());
-			        				if(
-		        						worldServer.getChunkProvider().chunkExists(realChunkCoord.getChunkX(), realChunkCoord.getChunkZ()) &&
-		        						worldServer.getChunkProvider().provideChunk(realChunkCoord.getChunkX(), realChunkCoord.getChunkZ()).isTerrainPopulated()
-	        						)
-			        				{
-			        					CreateBlockWorldMapAtSpawn(realChunkCoord, false);
-			        				}
-			        			}
-							}
-						}
-		    		}
-		    	}
-		    	destinationCoordinateCache = null;
+	/**
+	 * Redraws at most MAX_CHUNKS_PER_TICK dirty chunks. Chunks that aren't loaded
+	 * or populated are dropped, they'll be queued again when they get populated.
+	 */
+	private static void processDirtyChunks(WorldServer worldServer)
+	{
+		int processed = 0;
+		Iterator<Long> it = dirtyChunks.iterator();
+		while(it.hasNext() && processed < MAX_CHUNKS_PER_TICK)
+		{
+			long chunkKey = it.next();
+			it.remove();
+
+			int chunkX = (int)chunkKey;
+			int chunkZ = (int)(chunkKey >> 32);
+			if(
+				worldServer.getChunkProvider().chunkExists(chunkX, chunkZ) &&
+				worldServer.getChunkProvider().provideChunk(chunkX, chunkZ).isTerrainPopulated()
+			)
+			{
+				CreateBlockWorldMapAtSpawn(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ), false);
+				processed++;
 			}
 		}
 	}
@@ -40,6 +40,29 @@ public class TXBiome extends Biome
 
         this.skyColor = config.skyColor;
           
+        setMobs(config);
+    }
+
+    /**
+     * Applies the settings of a reloaded config to this biome, so that the
+     * registered biome doesn't need to be replaced. The biome id, name and
+     * BiomeDictionary types can't be changed this way.
+     * @param config The reloaded config.
+     */
+    public void reloadSettings(BiomeConfig config)
+    {
+        this.skyColor = config.skyColor;
+        this.temperature = getSafeTemperature(config);
+        this.rainfall = config.biomeWetness;
+        this.waterColor = config.waterColor;
+        this.enableRain = config.biomeWetness > 0.0001;
+        this.enableSnow = config.biomeTemperature <= WorldStandardValues.SNOW_AND_ICE_MAX_TEMP;
+
+        setMobs(config);
+    }
+
+    private void setMobs(BiomeConfig config)
+    {
         // TODO: Is clearing really necessary here?
         // Don't use the TC default values for mob spawning for Forge, 
         // instead we'll copy mobs lists from the vanilla biomes so we 
@@ -56,6 +79,17 @@ public class TXBiome extends Biome
         addMobs(this.spawnableWaterCreatureList, config.spawnWaterCreaturesMerged);//, improvedMobSpawning);
         addMobs(this.spawnableCaveCreatureList, config.spawnAmbientCreaturesMerged);//, improvedMobSpawning);
     }
+
+    private static float getSafeTemperature(BiomeConfig biomeConfig)
+    {
+        float safeTemperature = biomeConfig.biomeTemperature;
+        if (safeTemperature >= 0.1 && safeTemperature <= 0.2)
+        {
+            // Avoid temperatures between 0.1 and 0.2, Minecraft restriction
+            safeTemperature = safeTemperature >= 1.5 ? 0.2f : 0.1f;
+        }
+        return safeTemperature;
+    }
     
     /**
      * Extension of BiomeProperties so that we are able to access the protected
@@ -70,13 +104,7 @@ public class TXBiome extends Biome
             this.setHeightVariation(biomeConfig.biomeVolatility);
             this.setRainfall(biomeConfig.biomeWetness);
             this.setWaterColor(biomeConfig.waterColor);
-            float safeTemperature = biomeConfig.biomeTemperature;
-            if (safeTemperature >= 0.1 && safeTemperature <= 0.2)
-            {
-                // Avoid temperatures between 0.1 and 0.2, Minecraft restriction
-                safeTemperature = safeTemperature >= 1.5 ? 0.2f : 0.1f;
-            }
-            this.setTemperature(safeTemperature);
+            this.setTemperature(getSafeTemperature(biomeConfig));
             if (biomeConfig.biomeWetness <= 0.0001)
             {
                 this.setRainDisabled();
@@ -1,14 +1,18 @@
 package com.khorn.terraincontrol.forge.generator;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import com.google.common.collect.Lists;
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.forge.ForgeBiome;
 import com.khorn.terraincontrol.forge.ForgeWorld;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.generator.biome.OutputType;
+import com.khorn.terraincontrol.generator.biome.UnzoomedBiomeCache;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
 
 import net.minecraft.init.Biomes;
@@ -24,13 +28,28 @@ import net.minecraft.world.gen.structure.MapGenVillage;
  */
 public class TXBiomeProvider extends BiomeProvider
 {   
-    private final BiomeGenerator biomeGenerator;
+    /**
+     * Maximum amount of compiled biome lists. Minecraft only uses a few
+     * lists, but mods may create a new list for every call.
+     */
+    private static final int MAX_ALLOWED_LISTS = 32;
+
+    private BiomeGenerator biomeGenerator;
     private final ForgeWorld localWorld;
+    private UnzoomedBiomeCache unzoomedBiomeCache;
+
+    /**
+     * Bit sets of the biome ids in the lists passed to
+     * {@link #areBiomesViable(int, int, int, List)}.
+     */
+    private final Map<List<Biome>, long[]> allowedBiomeIds = new IdentityHashMap<List<Biome>, long[]>();
+    private LocalBiome[] cachedBiomes;
 
     public TXBiomeProvider(ForgeWorld world, BiomeGenerator biomeGenerator)
     {
         this.localWorld = world;
         this.biomeGenerator = biomeGenerator;
+        this.unzoomedBiomeCache = new UnzoomedBiomeCache(biomeGenerator);
     }
     
     @Override
@@ -108,15 +127,50 @@ public class TXBiomeProvider extends BiomeProvider
 
         int n = k - i + 1;
         int i1 = m - j + 1;
-        Biome[] arrayOfInt = this.getBiomesForGeneration(null, i, j, n, i1);
-        for (int i2 = 0; i2 < n * i1; i2++)
+        return this.unzoomedBiomeCache.containsOnly(i, j, n, i1, getAllowedBiomeIds(allowed));
+    }
+
+    /**
+     * Gets the ids of the biomes in the given list. The result is cached
+     * until the biomes of the world are reloaded.
+     * @param allowed The list of biomes.
+     * @return Bit set of the biome ids.
+     */
+    private long[] getAllowedBiomeIds(List<Biome> allowed)
+    {
+        synchronized (this.allowedBiomeIds)
         {
-            Biome localBiomeBase = arrayOfInt[i2];
-            if (!allowed.contains(localBiomeBase))
-                return false;
-        }
+            LocalBiome[] biomes = this.localWorld.getConfigs().getBiomeArray();
+            if (biomes != this.cachedBiomes)
+            {
+                // Biomes were reloaded
+                this.allowedBiomeIds.clear();
+                this.unzoomedBiomeCache.clear();
+                this.cachedBiomes = biomes;
+            }
 
-        return true;
+            long[] biomeIds = this.allowedBiomeIds.get(allowed);
+            if (biomeIds == null)
+            {
+                int maxBiomesCount = this.localWorld.getMaxBiomesCount();
+                biomeIds = new long[(maxBiomesCount + 63) >> 6];
+                for (int id = 0; id < maxBiomesCount; id++)
+                {
+                    ForgeBiome biome = TerrainControl.isForge ? (ForgeBiome) TerrainControl.getBiomeAllWorlds(id) : this.localWorld.getBiomeByIdOrNull(id);
+                    if (biome != null && allowed.contains(biome.getHandle()))
+                    {
+                        biomeIds[id >> 6] |= 1L << id;
+                    }
+                }
+
+                if (this.allowedBiomeIds.size() >= MAX_ALLOWED_LISTS)
+                {
+                    this.allowedBiomeIds.clear();
+                }
+                this.allowedBiomeIds.put(allowed, biomeIds);
+            }
+            return biomeIds;
+        }
     }
 
     private static List<Biome> forbiddenBiomes = Lists.newArrayList(Biomes.HELL, Biomes.SKY, Biomes.VOID);
@@ -160,6 +214,32 @@ public class TXBiomeProvider extends BiomeProvider
     @Override
     public void cleanupCache()
     {
-        this.biomeGenerator.cleanupCache();
+        if (this.biomeGenerator != null)
+        {
+            this.biomeGenerator.cleanupCache();
+        }
+    }
+
+    /**
+     * Gets the amount of cached tiles of unzoomed biomes.
+     * @return The amount of tiles, 0 if {@link #release()} was called.
+     */
+    public int getUnzoomedTileCount()
+    {
+        return this.unzoomedBiomeCache == null ? 0 : this.unzoomedBiomeCache.getTileCount();
+    }
+
+    /**
+     * Drops the biome generator and all cached biomes. Minecraft keeps
+     * referencing this provider from the unloaded world, so without this
+     * the biome generator and its caches would stay in memory. Must only be
+     * called for unloaded worlds, no biomes can be requested afterwards.
+     */
+    public void release()
+    {
+        this.biomeGenerator = null;
+        this.unzoomedBiomeCache = null;
+        this.allowedBiomeIds.clear();
+        this.cachedBiomes = null;
     }
 }
\ No newline at end of file
@@ -51,6 +51,29 @@ public class TXChunkGenerator implements IChunkGenerator
         this.spawner = new ObjectSpawner(this.world.getConfigs(), this.world);
     }
 
+    /**
+     * Gets the terrain generator, used to show its cache sizes.
+     * @return The terrain generator, or null if {@link #release()} was
+     * called.
+     */
+    public ChunkProviderTC getTerrainGenerator()
+    {
+        return this.generator;
+    }
+
+    /**
+     * Drops the terrain generator and object spawner, including all their
+     * caches. Minecraft keeps referencing this chunk generator from the
+     * unloaded world, so without this they would stay in memory. Must only
+     * be called for unloaded worlds, no chunks can be generated afterwards.
+     */
+    public void release()
+    {
+        this.generator = null;
+        this.spawner = null;
+        this.biomeIntArray = null;
+    }
+
     @Override
     public Chunk provideChunk(int chunkX, int chunkZ)
     {